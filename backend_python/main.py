@@ -1,5 +1,5 @@
 from fastapi import FastAPI, HTTPException
-from sqlalchemy import create_engine, Column, Integer, String, Numeric, Date, text, BigInteger, select
+from sqlalchemy import create_engine, Column, String, Numeric, text, or_
 from sqlalchemy.orm import sessionmaker, declarative_base
 from fastapi.middleware.cors import CORSMiddleware
 
@@ -43,23 +43,17 @@ SessionLocal = sessionmaker(autocommit=False, autoflush=False, bind=engine)
 Base = declarative_base()
 
 # --- MODELOS ---
-class Operadora(Base):
-    __tablename__ = "operadoras"
-    id = Column(BigInteger, primary_key=True)
-    registro_ans = Column(String)
+# Tabela de leitura publicada pelo ETL (TabelasConsultaService): já tem razão social e totais,
+# com índices que cobrem a listagem e a busca por prefixo.
+class OperadoraListagem(Base):
+    __tablename__ = "operadoras_listagem"
+    registro_ans = Column(String, primary_key=True)
     cnpj = Column(String)
+    razao_social = Column(String)
+    razao_social_busca = Column(String)
     uf = Column(String)
     modalidade = Column(String)
-
-class Despesa(Base):
-    __tablename__ = "despesas"
-    registro_ans = Column(String, primary_key=True)
-    data_evento = Column("data", Date)
-    ano = Column(Integer)
-    trimestre = Column(Integer)
-    valor = Column(Numeric)
-    descricao = Column(String)
-    razao_social = Column(String)
+    total_despesas = Column(Numeric)
 
 # --- ROTAS ---
 @app.get("/")
@@ -71,26 +65,31 @@ def listar_operadoras(page: int = 1, limit: int = 10, search: str = ""):
     db = SessionLocal()
     offset = (page - 1) * limit
     
-    subquery_nome = (
-        select(Despesa.razao_social)
-        .where(Despesa.registro_ans == Operadora.cnpj)
-        .limit(1)
-        .scalar_subquery()
-    )
-
     query = db.query(
-        Operadora.registro_ans,
-        Operadora.cnpj,
-        Operadora.uf,
-        Operadora.modalidade,
-        subquery_nome.label("razao_social")
+        OperadoraListagem.registro_ans,
+        OperadoraListagem.cnpj,
+        OperadoraListagem.uf,
+        OperadoraListagem.modalidade,
+        OperadoraListagem.razao_social,
+        OperadoraListagem.total_despesas
     )
     
     if search:
-        query = query.filter(Operadora.cnpj.ilike(f"%{search}%"))
+        termo = search.strip()
+        digitos = termo.replace(".", "").replace("/", "").replace("-", "")
+        if digitos.isdigit():
+            # CNPJ ou Registro ANS: busca por prefixo (usa o índice em cnpj)
+            # autoescape: '%' e '_' digitados são literais, não curingas do LIKE
+            query = query.filter(or_(OperadoraListagem.cnpj.startswith(digitos, autoescape=True),
+                                     OperadoraListagem.registro_ans == digitos))
+        else:
+            # Nome: prefixo sem diferenciar maiúsculas (coluna razao_social_busca já está em caixa alta)
+            query = query.filter(OperadoraListagem.razao_social_busca.startswith(termo.upper(), autoescape=True))
     
     total = query.count()
-    resultados = query.offset(offset).limit(limit).all()
+    resultados = (query
+                  .order_by(OperadoraListagem.razao_social, OperadoraListagem.registro_ans)
+                  .offset(offset).limit(limit).all())
     
     data_json = []
     for row in resultados:
@@ -99,7 +98,8 @@ def listar_operadoras(page: int = 1, limit: int = 10, search: str = ""):
             "cnpj": row.cnpj,
             "uf": row.uf,
             "modalidade": corrigir_texto(row.modalidade), # <--- AQUI
-            "razao_social": corrigir_texto(row.razao_social) if row.razao_social else "NOME INDISPONÍVEL" # <--- E AQUI
+            "razao_social": corrigir_texto(row.razao_social) if row.razao_social else "NOME INDISPONÍVEL", # <--- E AQUI
+            "total_despesas": float(row.total_despesas or 0)
         })
 
     db.close()
@@ -113,18 +113,19 @@ def listar_operadoras(page: int = 1, limit: int = 10, search: str = ""):
 def estatisticas():
     db = SessionLocal()
     try:
-        total = db.execute(text("SELECT SUM(valor) FROM despesas")).scalar() or 0
-        
+        # Totais pré-agregados pelo ETL (poucas linhas por operadora em vez da tabela de despesas).
+        # Total e distribuição saem da mesma fonte: a soma das UFs (com 'N/I' para despesas sem
+        # operadora no cadastro ou sem UF) é sempre igual ao total geral.
         ufs = db.execute(text("""
-            SELECT o.uf, SUM(d.valor) 
-            FROM despesas d 
-            JOIN operadoras o ON d.registro_ans = o.cnpj 
-            WHERE o.uf IS NOT NULL 
-            GROUP BY o.uf 
-            ORDER BY SUM(d.valor) DESC
+            SELECT COALESCE(o.uf, 'N/I') AS uf, SUM(t.total_despesas)
+            FROM despesas_operadora_trimestre t
+            LEFT JOIN operadoras_listagem o ON o.registro_ans = t.registro_ans
+            GROUP BY 1
+            ORDER BY 2 DESC
         """)).fetchall()
         
         distribuicao_uf = [{"uf": row[0], "valor": float(row[1])} for row in ufs]
+        total = sum(row[1] for row in ufs)
         
         return {"total_geral": float(total), "distribuicao_uf": distribuicao_uf}
     except Exception as e:
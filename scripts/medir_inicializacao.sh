@@ -0,0 +1,56 @@
+#!/usr/bin/env bash
+# Mede o tempo de inicialização do ETL no perfil batch, nos modos "só CSV" e "com banco",
+# com e sem AOT + CDS (Class Data Sharing). Não acessa a ANS: usa --etl.medir-inicializacao=true.
+#
+# Uso: ./scripts/medir_inicializacao.sh [repeticoes]
+# Pré-requisito para o modo banco: PostgreSQL configurado em application.properties.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+REPETICOES="${1:-5}"
+JAR=target/desafio-0.0.1-SNAPSHOT.jar
+DIR=target/batch-cds
+
+echo ">>> Empacotando com o perfil batch (AOT)..."
+sh ./mvnw -q -Pbatch -DskipTests package
+
+echo ">>> Extraindo o jar (layout recomendado para CDS)..."
+rm -rf "$DIR"
+java -Djarmode=tools -jar "$JAR" extract --destination "$DIR"
+APP_JAR="$DIR/$(basename "$JAR")"
+
+echo ">>> Execução de treino para gerar o arquivo CDS (sobe também as classes de JDBC)..."
+java -XX:ArchiveClassesAtExit="$DIR/batch.jsa" -Dspring.aot.enabled=true \
+    -jar "$APP_JAR" --etl.medir-inicializacao=true --etl.sink.banco.enabled=true > /dev/null \
+    || echo "    (treino falhou; o CDS cobre só as classes carregadas até a falha)"
+
+# Média do "Total até o primeiro trabalho útil" reportado pelo TestExecutionRunner.
+# O padrão não depende dos acentos, que saem como '?' quando o stdout da JVM não é UTF-8.
+# Execuções que falham ou não imprimem a medição (ex: PostgreSQL fora do ar no modo banco) são
+# descartadas; sem nenhuma válida, imprime "n/d".
+medir() {
+    local total=0 validas=0
+    for _ in $(seq "$REPETICOES"); do
+        local ms
+        ms=$(java "$@" 2>/dev/null | sed -n 's/^\[startup\] Total .*: \([0-9][0-9]*\) ms$/\1/p' | tail -n 1) || true
+        if [ -n "$ms" ]; then
+            total=$((total + ms))
+            validas=$((validas + 1))
+        fi
+    done
+    if [ "$validas" -eq 0 ]; then
+        echo "n/d"
+    else
+        echo $((total / validas))
+    fi
+}
+
+printf '\n%-12s %-18s %10s\n' "Modo" "Variante" "Média (ms)"
+for SINK in false true; do
+    MODO=$([ "$SINK" = true ] && echo "banco" || echo "só CSV")
+    printf '%-12s %-18s %10s\n' "$MODO" "JIT padrão" \
+        "$(medir -jar "$APP_JAR" --etl.medir-inicializacao=true --etl.sink.banco.enabled=$SINK)"
+    printf '%-12s %-18s %10s\n' "$MODO" "AOT + CDS" \
+        "$(medir -XX:SharedArchiveFile="$DIR/batch.jsa" -Dspring.aot.enabled=true -jar "$APP_JAR" \
+            --etl.medir-inicializacao=true --etl.sink.banco.enabled=$SINK)"
+done
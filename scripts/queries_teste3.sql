@@ -17,20 +17,66 @@ CREATE TABLE operadoras (
 -- Valor: DECIMAL(15,2) -> Essencial para dados monetários. FLOAT tem problemas de precisão em centavos.
 -- Data: DATE -> Suficiente, pois a análise é trimestral (dia/mês/ano), não precisamos de precisão de segundos (TIMESTAMP).
 
+-- TRADE-OFF: PARTICIONAMENTO
+-- A tabela é particionada por faixa de (ano, trimestre). O ETL carrega cada trimestre numa tabela de staging,
+-- cria os índices nela e faz ATTACH PARTITION na mesma transação em que a partição antiga sai (DETACH + DROP).
+-- 1. Consultas filtradas por trimestre fazem partition pruning (por isso não há mais índice em (ano, trimestre)).
+-- 2. Recarregar um trimestre vira uma troca de metadados, sem DELETE/INSERT em massa nem inchaço de índices.
+-- Obs.: FK não é declarada aqui porque cada partição é substituída inteira a cada carga.
+
 CREATE TABLE despesas (
-                          id SERIAL PRIMARY KEY,
                           registro_ans VARCHAR(20),
-                          data_evento DATE, -- Representa o trimestre (ex: 2025-01-01 para 1T2025)
-                          trimestre INT,
-                          ano INT,
-                          valor NUMERIC(15,2),
+                          razao_social VARCHAR(255),
                           descricao VARCHAR(255),
-                          CONSTRAINT fk_operadora FOREIGN KEY (registro_ans) REFERENCES operadoras(registro_ans)
-);
+                          conta VARCHAR(20),
+                          data DATE, -- Representa o trimestre (ex: 2025-01-01 para 1T2025)
+                          valor NUMERIC(15,2),
+                          ano INT NOT NULL,
+                          trimestre INT NOT NULL,
+                          cnpj VARCHAR(20),
+                          modalidade VARCHAR(100),
+                          uf CHAR(2)
+) PARTITION BY RANGE (ano, trimestre);
 
-CREATE INDEX idx_despesas_data ON despesas(ano, trimestre);
 CREATE INDEX idx_despesas_operadora ON despesas(registro_ans);
 
+-- Exemplo de partição (o ETL cria/substitui estas automaticamente)
+-- CREATE TABLE despesas_2025_t1 PARTITION OF despesas FOR VALUES FROM (2025, 1) TO (2025, 2);
+
+-- TRADE-OFF: TABELAS DE LEITURA (API)
+-- As tabelas acima continuam normalizadas para a carga. Para a API, o ETL publica após cada carga duas tabelas
+-- desnormalizadas (construídas como *_novo e trocadas por RENAME numa única transação):
+-- 1. A listagem de operadoras vira um index-only scan, sem subconsulta por linha para achar a razão social.
+-- 2. Estatísticas somam totais pré-agregados por operadora/trimestre em vez de varrer 'despesas'.
+-- Custo: os totais só mudam na próxima carga (a API não lê dados no meio de uma carga).
+
+CREATE TABLE despesas_operadora_trimestre (
+                                              registro_ans VARCHAR(20),
+                                              ano INT,
+                                              trimestre INT,
+                                              total_despesas NUMERIC,
+                                              quantidade_despesas BIGINT,
+                                              PRIMARY KEY (registro_ans, ano, trimestre)
+);
+
+CREATE TABLE operadoras_listagem (
+                                     registro_ans VARCHAR(20) PRIMARY KEY,
+                                     cnpj VARCHAR(20),
+                                     razao_social VARCHAR(255),
+                                     razao_social_busca VARCHAR(255), -- UPPER(razao_social), para busca por prefixo
+                                     modalidade VARCHAR(100),
+                                     uf CHAR(2),
+                                     total_despesas NUMERIC,
+                                     quantidade_despesas BIGINT
+);
+
+CREATE INDEX operadoras_listagem_nome_idx ON operadoras_listagem (razao_social, registro_ans)
+    INCLUDE (cnpj, modalidade, uf, total_despesas);
+CREATE INDEX operadoras_listagem_busca_idx ON operadoras_listagem (razao_social_busca text_pattern_ops)
+    INCLUDE (registro_ans, cnpj, razao_social, modalidade, uf, total_despesas);
+CREATE INDEX operadoras_listagem_cnpj_idx ON operadoras_listagem (cnpj text_pattern_ops)
+    INCLUDE (registro_ans, cnpj, razao_social, modalidade, uf, total_despesas);
+
 WITH despesas_trimestrais AS (
     SELECT
         d.registro_ans,
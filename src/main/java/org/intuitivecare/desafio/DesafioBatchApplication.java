@@ -0,0 +1,19 @@
+package org.intuitivecare.desafio;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+
+/**
+ * Ponto de entrada enxuto do ETL: sem servidor web e com o perfil 'batch' (inicialização lazy).
+ * É a classe usada pelo processamento AOT e pelo arquivo CDS do perfil Maven 'batch'.
+ */
+public class DesafioBatchApplication {
+
+    public static void main(String[] args) {
+        SpringApplication app = new SpringApplication(DesafioApplication.class);
+        app.setWebApplicationType(WebApplicationType.NONE);
+        app.setAdditionalProfiles("batch");
+        app.run(args);
+    }
+
+}
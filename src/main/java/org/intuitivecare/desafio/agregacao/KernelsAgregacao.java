@@ -0,0 +1,43 @@
+package org.intuitivecare.desafio.agregacao;
+
+/**
+ * Kernels de agregação sobre colunas primitivas: valores em centavos (long[]) e chaves de grupo
+ * de baixa cardinalidade (int[] ou byte[], ex: código de UF ou de trimestre).
+ * Todas as operações usam só as primeiras {@code n} posições dos arrays e são exatas:
+ * se a soma não couber num long, lançam {@link ArithmeticException} em vez de transbordar.
+ * <p>
+ * {@link #instancia()} devolve a implementação com jdk.incubator.vector quando o módulo foi carregado
+ * (--add-modules jdk.incubator.vector) e a escalar caso contrário.
+ */
+public interface KernelsAgregacao {
+
+    /** Implementação escolhida para esta JVM (decidida uma vez). */
+    static KernelsAgregacao instancia() {
+        return SelecaoKernels.INSTANCIA;
+    }
+
+    String nome();
+
+    long soma(long[] valores, int n);
+
+    /** Soma dos valores cuja chave é igual a {@code chave} (soma com máscara). */
+    long somaOnde(long[] valores, int[] chaves, int chave, int n);
+
+    /** Quantidade de posições cuja chave é igual a {@code chave}. */
+    long contagemOnde(int[] chaves, int chave, int n);
+
+    /** Menor valor ({@link Long#MAX_VALUE} se n == 0). */
+    long minimo(long[] valores, int n);
+
+    /** Maior valor ({@link Long#MIN_VALUE} se n == 0). */
+    long maximo(long[] valores, int n);
+
+    /**
+     * Soma e contagem por grupo: acumula em {@code somas[chave]} e {@code contagens[chave]}.
+     * As chaves devem estar entre 0 e somas.length - 1.
+     */
+    void somarPorGrupo(long[] valores, int[] chaves, int n, long[] somas, long[] contagens);
+
+    /** Igual ao de chaves int, com chaves byte sem sinal (0 a 255). */
+    void somarPorGrupo(long[] valores, byte[] chaves, int n, long[] somas, long[] contagens);
+}
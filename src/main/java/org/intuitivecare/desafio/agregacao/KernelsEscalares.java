@@ -0,0 +1,94 @@
+package org.intuitivecare.desafio.agregacao;
+
+/**
+ * Implementação de referência, um elemento por vez com {@link Math#addExact(long, long)}.
+ * Também é o caminho dos kernels vetoriais para grupos de alta cardinalidade e blocos com risco de overflow.
+ */
+public class KernelsEscalares implements KernelsAgregacao {
+
+    @Override
+    public String nome() {
+        return "escalares";
+    }
+
+    @Override
+    public long soma(long[] valores, int n) {
+        return soma(valores, 0, n);
+    }
+
+    static long soma(long[] valores, int inicio, int fim) {
+        long soma = 0;
+        for (int i = inicio; i < fim; i++) {
+            soma = Math.addExact(soma, valores[i]);
+        }
+        return soma;
+    }
+
+    @Override
+    public long somaOnde(long[] valores, int[] chaves, int chave, int n) {
+        return somaOnde(valores, chaves, chave, 0, n);
+    }
+
+    static long somaOnde(long[] valores, int[] chaves, int chave, int inicio, int fim) {
+        long soma = 0;
+        for (int i = inicio; i < fim; i++) {
+            if (chaves[i] == chave) {
+                soma = Math.addExact(soma, valores[i]);
+            }
+        }
+        return soma;
+    }
+
+    @Override
+    public long contagemOnde(int[] chaves, int chave, int n) {
+        long contagem = 0;
+        for (int i = 0; i < n; i++) {
+            if (chaves[i] == chave) contagem++;
+        }
+        return contagem;
+    }
+
+    @Override
+    public long minimo(long[] valores, int n) {
+        long minimo = Long.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            minimo = Math.min(minimo, valores[i]);
+        }
+        return minimo;
+    }
+
+    @Override
+    public long maximo(long[] valores, int n) {
+        long maximo = Long.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            maximo = Math.max(maximo, valores[i]);
+        }
+        return maximo;
+    }
+
+    @Override
+    public void somarPorGrupo(long[] valores, int[] chaves, int n, long[] somas, long[] contagens) {
+        somarPorGrupo(valores, chaves, 0, n, somas, contagens);
+    }
+
+    static void somarPorGrupo(long[] valores, int[] chaves, int inicio, int fim, long[] somas, long[] contagens) {
+        for (int i = inicio; i < fim; i++) {
+            int chave = chaves[i];
+            somas[chave] = Math.addExact(somas[chave], valores[i]);
+            contagens[chave]++;
+        }
+    }
+
+    @Override
+    public void somarPorGrupo(long[] valores, byte[] chaves, int n, long[] somas, long[] contagens) {
+        somarPorGrupo(valores, chaves, 0, n, somas, contagens);
+    }
+
+    static void somarPorGrupo(long[] valores, byte[] chaves, int inicio, int fim, long[] somas, long[] contagens) {
+        for (int i = inicio; i < fim; i++) {
+            int chave = chaves[i] & 0xFF;
+            somas[chave] = Math.addExact(somas[chave], valores[i]);
+            contagens[chave]++;
+        }
+    }
+}
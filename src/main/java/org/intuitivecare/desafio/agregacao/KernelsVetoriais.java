@@ -0,0 +1,235 @@
+package org.intuitivecare.desafio.agregacao;
+
+import jdk.incubator.vector.*;
+
+/**
+ * Kernels com a Vector API (jdk.incubator.vector), na largura preferida da CPU (ex: 4 longs em AVX2).
+ * <p>
+ * Exatidão: os acumuladores por lane não checam overflow, então cada bloco de {@link #BLOCO} linhas
+ * calcula também mínimo e máximo; se |valor| * linhas do bloco cabe num long, nenhuma lane pode
+ * transbordar e a soma do bloco entra no total com {@link Math#addExact(long, long)}. Senão o bloco
+ * é refeito no caminho escalar. Os blocos cabem no L1/L2, então a segunda leitura não volta à memória.
+ * <p>
+ * Group-by: uma passada com máscara por grupo sobre o bloco em cache, com contagem por lane.
+ * O custo cresce com o número de grupos, então só vale para poucos (ex: trimestres); acima de
+ * {@link #maximoGruposVetorial()} (ex: UF, operadora) usa o histograma escalar, que é mais rápido.
+ */
+public class KernelsVetoriais implements KernelsAgregacao {
+
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    // Mesmo número de lanes dos longs: as chaves são convertidas (I2L) e comparadas já como long.
+    // Converter as chaves sai bem mais barato que converter a máscara (VectorMask.cast).
+    private static final VectorSpecies<Integer> INTS =
+            VectorSpecies.of(int.class, VectorShape.forBitSize(LONGS.vectorBitSize() / 2));
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_64;
+    private static final int CONTAGEM_LANES = IntVector.SPECIES_PREFERRED.length();
+    private static final LongVector UM = LongVector.broadcast(LONGS, 1);
+
+    // 2048 longs = 16 KB por bloco
+    private static final int BLOCO = 2048;
+
+    @Override
+    public String nome() {
+        return "vetoriais (jdk.incubator.vector, " + LONGS.vectorBitSize() + " bits, " + LONGS.length() + " lanes)";
+    }
+
+    /** Acima disso, somarPorGrupo usa o histograma escalar. */
+    public static int maximoGruposVetorial() {
+        return Math.max(4, LONGS.length());
+    }
+
+    @Override
+    public long soma(long[] valores, int n) {
+        long total = 0;
+        for (int inicio = 0; inicio < n; inicio += BLOCO) {
+            int fim = Math.min(n, inicio + BLOCO);
+            int limite = inicio + LONGS.loopBound(fim - inicio);
+
+            LongVector acumulado = LongVector.zero(LONGS);
+            LongVector minimo = LongVector.broadcast(LONGS, Long.MAX_VALUE);
+            LongVector maximo = LongVector.broadcast(LONGS, Long.MIN_VALUE);
+            for (int i = inicio; i < limite; i += LONGS.length()) {
+                LongVector v = LongVector.fromArray(LONGS, valores, i);
+                acumulado = acumulado.add(v);
+                minimo = minimo.min(v);
+                maximo = maximo.max(v);
+            }
+
+            if (semOverflow(minimo, maximo, limite - inicio)) {
+                total = Math.addExact(total, acumulado.reduceLanes(VectorOperators.ADD));
+            } else {
+                total = Math.addExact(total, KernelsEscalares.soma(valores, inicio, limite));
+            }
+            total = Math.addExact(total, KernelsEscalares.soma(valores, limite, fim));
+        }
+        return total;
+    }
+
+    @Override
+    public long somaOnde(long[] valores, int[] chaves, int chave, int n) {
+        long total = 0;
+        for (int inicio = 0; inicio < n; inicio += BLOCO) {
+            int fim = Math.min(n, inicio + BLOCO);
+            int limite = inicio + LONGS.loopBound(fim - inicio);
+
+            LongVector acumulado = LongVector.zero(LONGS);
+            LongVector minimo = LongVector.broadcast(LONGS, Long.MAX_VALUE);
+            LongVector maximo = LongVector.broadcast(LONGS, Long.MIN_VALUE);
+            for (int i = inicio; i < limite; i += LONGS.length()) {
+                VectorMask<Long> mascara = chavesLong(chaves, i).eq(chave);
+                LongVector v = LongVector.fromArray(LONGS, valores, i);
+                acumulado = acumulado.add(v, mascara);
+                // Limites de todas as linhas do bloco (não só as da máscara): cota superior suficiente
+                minimo = minimo.min(v);
+                maximo = maximo.max(v);
+            }
+
+            if (semOverflow(minimo, maximo, limite - inicio)) {
+                total = Math.addExact(total, acumulado.reduceLanes(VectorOperators.ADD));
+            } else {
+                total = Math.addExact(total, KernelsEscalares.somaOnde(valores, chaves, chave, inicio, limite));
+            }
+            total = Math.addExact(total, KernelsEscalares.somaOnde(valores, chaves, chave, limite, fim));
+        }
+        return total;
+    }
+
+    @Override
+    public long contagemOnde(int[] chaves, int chave, int n) {
+        VectorSpecies<Integer> especie = IntVector.SPECIES_PREFERRED;
+        int limite = especie.loopBound(n);
+        long contagem = 0;
+        int i = 0;
+        for (; i < limite; i += CONTAGEM_LANES) {
+            contagem += IntVector.fromArray(especie, chaves, i).eq(chave).trueCount();
+        }
+        for (; i < n; i++) {
+            if (chaves[i] == chave) contagem++;
+        }
+        return contagem;
+    }
+
+    @Override
+    public long minimo(long[] valores, int n) {
+        int limite = LONGS.loopBound(n);
+        LongVector minimo = LongVector.broadcast(LONGS, Long.MAX_VALUE);
+        int i = 0;
+        for (; i < limite; i += LONGS.length()) {
+            minimo = minimo.min(LongVector.fromArray(LONGS, valores, i));
+        }
+        long resultado = minimo.reduceLanes(VectorOperators.MIN);
+        for (; i < n; i++) {
+            resultado = Math.min(resultado, valores[i]);
+        }
+        return resultado;
+    }
+
+    @Override
+    public long maximo(long[] valores, int n) {
+        int limite = LONGS.loopBound(n);
+        LongVector maximo = LongVector.broadcast(LONGS, Long.MIN_VALUE);
+        int i = 0;
+        for (; i < limite; i += LONGS.length()) {
+            maximo = maximo.max(LongVector.fromArray(LONGS, valores, i));
+        }
+        long resultado = maximo.reduceLanes(VectorOperators.MAX);
+        for (; i < n; i++) {
+            resultado = Math.max(resultado, valores[i]);
+        }
+        return resultado;
+    }
+
+    @Override
+    public void somarPorGrupo(long[] valores, int[] chaves, int n, long[] somas, long[] contagens) {
+        int grupos = somas.length;
+        if (grupos > maximoGruposVetorial()) {
+            KernelsEscalares.somarPorGrupo(valores, chaves, 0, n, somas, contagens);
+            return;
+        }
+
+        for (int inicio = 0; inicio < n; inicio += BLOCO) {
+            int fim = Math.min(n, inicio + BLOCO);
+            int limite = inicio + LONGS.loopBound(fim - inicio);
+
+            if (!blocoSemOverflow(valores, inicio, limite)) {
+                KernelsEscalares.somarPorGrupo(valores, chaves, inicio, limite, somas, contagens);
+            } else {
+                for (int grupo = 0; grupo < grupos; grupo++) {
+                    LongVector acumulado = LongVector.zero(LONGS);
+                    LongVector contagem = LongVector.zero(LONGS);
+                    for (int i = inicio; i < limite; i += LONGS.length()) {
+                        VectorMask<Long> mascara = chavesLong(chaves, i).eq(grupo);
+                        acumulado = acumulado.add(LongVector.fromArray(LONGS, valores, i), mascara);
+                        contagem = contagem.add(UM, mascara);
+                    }
+                    somas[grupo] = Math.addExact(somas[grupo], acumulado.reduceLanes(VectorOperators.ADD));
+                    contagens[grupo] += contagem.reduceLanes(VectorOperators.ADD);
+                }
+            }
+            KernelsEscalares.somarPorGrupo(valores, chaves, limite, fim, somas, contagens);
+        }
+    }
+
+    @Override
+    public void somarPorGrupo(long[] valores, byte[] chaves, int n, long[] somas, long[] contagens) {
+        int grupos = somas.length;
+        if (grupos > maximoGruposVetorial()) {
+            KernelsEscalares.somarPorGrupo(valores, chaves, 0, n, somas, contagens);
+            return;
+        }
+
+        // Cada passo lê 8 bytes de chave mas usa só LONGS.length(): o laço para antes de ler além do fim
+        int passo = LONGS.length();
+        int folga = Math.max(BYTES.length(), passo);
+        for (int inicio = 0; inicio < n; inicio += BLOCO) {
+            int fim = Math.min(n, inicio + BLOCO);
+            int iteracoes = fim - inicio >= folga ? (fim - inicio - folga) / passo + 1 : 0;
+            int limite = inicio + iteracoes * passo;
+
+            if (!blocoSemOverflow(valores, inicio, limite)) {
+                KernelsEscalares.somarPorGrupo(valores, chaves, inicio, limite, somas, contagens);
+            } else {
+                for (int grupo = 0; grupo < grupos; grupo++) {
+                    long chave = (byte) grupo; // B2L estende o sinal: compara com o mesmo byte estendido
+                    LongVector acumulado = LongVector.zero(LONGS);
+                    LongVector contagem = LongVector.zero(LONGS);
+                    for (int i = inicio; i < limite; i += passo) {
+                        LongVector chavesLong = (LongVector) ByteVector.fromArray(BYTES, chaves, i)
+                                .convertShape(VectorOperators.B2L, LONGS, 0);
+                        VectorMask<Long> mascara = chavesLong.eq(chave);
+                        acumulado = acumulado.add(LongVector.fromArray(LONGS, valores, i), mascara);
+                        contagem = contagem.add(UM, mascara);
+                    }
+                    somas[grupo] = Math.addExact(somas[grupo], acumulado.reduceLanes(VectorOperators.ADD));
+                    contagens[grupo] += contagem.reduceLanes(VectorOperators.ADD);
+                }
+            }
+            KernelsEscalares.somarPorGrupo(valores, chaves, limite, fim, somas, contagens);
+        }
+    }
+
+    private static LongVector chavesLong(int[] chaves, int i) {
+        return (LongVector) IntVector.fromArray(INTS, chaves, i).convertShape(VectorOperators.I2L, LONGS, 0);
+    }
+
+    /** Mínimo e máximo do trecho (vetorial) e checagem de que nenhuma lane pode transbordar. */
+    private static boolean blocoSemOverflow(long[] valores, int inicio, int limite) {
+        LongVector minimo = LongVector.broadcast(LONGS, Long.MAX_VALUE);
+        LongVector maximo = LongVector.broadcast(LONGS, Long.MIN_VALUE);
+        for (int i = inicio; i < limite; i += LONGS.length()) {
+            LongVector v = LongVector.fromArray(LONGS, valores, i);
+            minimo = minimo.min(v);
+            maximo = maximo.max(v);
+        }
+        return semOverflow(minimo, maximo, limite - inicio);
+    }
+
+    private static boolean semOverflow(LongVector minimos, LongVector maximos, int elementos) {
+        long minimo = minimos.reduceLanes(VectorOperators.MIN);
+        long maximo = maximos.reduceLanes(VectorOperators.MAX);
+        if (elementos == 0) return true;
+        if (minimo == Long.MIN_VALUE) return false; // |MIN_VALUE| não cabe num long
+        long magnitude = Math.max(Math.abs(minimo), Math.abs(maximo));
+        return magnitude <= Long.MAX_VALUE / elementos;
+    }
+}
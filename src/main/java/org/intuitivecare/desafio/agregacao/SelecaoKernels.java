@@ -0,0 +1,28 @@
+package org.intuitivecare.desafio.agregacao;
+
+/**
+ * Escolhe a implementação dos kernels na primeira chamada.
+ * A classe vetorial só é carregada se o módulo incubado estiver na JVM; sem ele (ou com
+ * -Dagregacao.vetorial=false) fica a escalar, com o mesmo resultado.
+ */
+final class SelecaoKernels {
+
+    static final KernelsAgregacao INSTANCIA = escolher();
+
+    private SelecaoKernels() {
+    }
+
+    private static KernelsAgregacao escolher() {
+        boolean permitido = !"false".equalsIgnoreCase(System.getProperty("agregacao.vetorial"));
+        if (permitido && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                KernelsAgregacao vetoriais = new KernelsVetoriais();
+                System.out.println("   [agregação] Usando kernels " + vetoriais.nome());
+                return vetoriais;
+            } catch (LinkageError | RuntimeException e) {
+                System.err.println("   [agregação] Vector API indisponível (" + e + "). Usando kernels escalares.");
+            }
+        }
+        return new KernelsEscalares();
+    }
+}
@@ -0,0 +1,12 @@
+package org.intuitivecare.desafio.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Agendamento só é ligado no modo watch (etl.watch.enabled=true)
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "etl.watch.enabled", havingValue = "true")
+public class AgendamentoConfig {
+}
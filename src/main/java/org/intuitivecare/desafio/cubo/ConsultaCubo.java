@@ -0,0 +1,131 @@
+package org.intuitivecare.desafio.cubo;
+
+import org.intuitivecare.desafio.agregacao.KernelsAgregacao;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+
+/**
+ * Consulta fluente sobre o {@link CuboDespesas}.
+ * Filtros na mesma dimensão são OR (ex: UF = SP ou RJ); entre dimensões são AND.
+ *
+ * <pre>
+ * cubo.consulta()
+ *     .filtrar(Dimensao.UF, "SP", "RJ")
+ *     .filtrar(Dimensao.PERIODO, "2025-T1")
+ *     .topN(Dimensao.OPERADORA, 10);
+ * </pre>
+ */
+public class ConsultaCubo {
+
+    private static final KernelsAgregacao KERNELS = KernelsAgregacao.instancia();
+
+    private final CuboDespesas cubo;
+    private final Map<Dimensao, Set<String>> filtros = new EnumMap<>(Dimensao.class);
+    private RoaringBitmap selecao; // calculada na primeira agregação
+
+    ConsultaCubo(CuboDespesas cubo) {
+        this.cubo = cubo;
+    }
+
+    public ConsultaCubo filtrar(Dimensao dimensao, String... valores) {
+        filtros.computeIfAbsent(dimensao, k -> new LinkedHashSet<>()).addAll(Arrays.asList(valores));
+        selecao = null;
+        return this;
+    }
+
+    /** Soma dos valores filtrados, em centavos. */
+    public long somaCentavos() {
+        long[] centavos = cubo.centavos();
+        if (filtros.isEmpty()) {
+            // Sem filtro: varre a coluna contígua com os kernels em vez de iterar o bitmap
+            return KERNELS.soma(centavos, cubo.getLinhas());
+        }
+        long soma = 0;
+        // IntIterator em vez de for-each: o Iterable<Integer> do bitmap faria boxing por linha
+        IntIterator linhas = selecao().getIntIterator();
+        while (linhas.hasNext()) {
+            soma = Math.addExact(soma, centavos[linhas.next()]);
+        }
+        return soma;
+    }
+
+    public BigDecimal soma() {
+        return BigDecimal.valueOf(somaCentavos(), 2);
+    }
+
+    public long contagem() {
+        return selecao().getLongCardinality();
+    }
+
+    /** Média por lançamento (null se nenhum lançamento passou no filtro). */
+    public BigDecimal media() {
+        long contagem = contagem();
+        if (contagem == 0) return null;
+        return BigDecimal.valueOf(somaCentavos(), 2).divide(BigDecimal.valueOf(contagem), 2, RoundingMode.HALF_EVEN);
+    }
+
+    /**
+     * Agrupa as linhas filtradas por uma dimensão e devolve os N maiores totais.
+     * Empates no total seguem a ordem em que os valores apareceram na carga.
+     */
+    public List<ItemRanking> topN(Dimensao agrupamento, int n) {
+        int cardinalidade = cubo.cardinalidade(agrupamento);
+        long[] somas = new long[cardinalidade];
+        long[] contagens = new long[cardinalidade];
+        long[] centavos = cubo.centavos();
+        int[] coluna = cubo.coluna(agrupamento);
+
+        if (filtros.isEmpty()) {
+            KERNELS.somarPorGrupo(centavos, coluna, cubo.getLinhas(), somas, contagens);
+        } else {
+            IntIterator linhas = selecao().getIntIterator();
+            while (linhas.hasNext()) {
+                int linha = linhas.next();
+                int codigo = coluna[linha];
+                somas[codigo] = Math.addExact(somas[codigo], centavos[linha]);
+                contagens[codigo]++;
+            }
+        }
+
+        // Min-heap de tamanho N: O(cardinalidade * log N). No empate sai primeiro o código mais novo
+        PriorityQueue<Integer> heap = new PriorityQueue<>(
+                Comparator.<Integer>comparingLong(c -> somas[c]).thenComparing(Comparator.reverseOrder()));
+        for (int codigo = 0; codigo < cardinalidade; codigo++) {
+            if (contagens[codigo] == 0) continue;
+            heap.offer(codigo);
+            if (heap.size() > n) heap.poll();
+        }
+
+        List<ItemRanking> ranking = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            int codigo = heap.poll();
+            ranking.add(new ItemRanking(cubo.valor(agrupamento, codigo), somas[codigo], contagens[codigo]));
+        }
+        Collections.reverse(ranking);
+        return ranking;
+    }
+
+    private RoaringBitmap selecao() {
+        if (selecao != null) return selecao;
+
+        RoaringBitmap resultado = null;
+        for (Map.Entry<Dimensao, Set<String>> filtro : filtros.entrySet()) {
+            List<RoaringBitmap> alternativas = new ArrayList<>();
+            for (String valor : filtro.getValue()) {
+                alternativas.add(cubo.linhasCom(filtro.getKey(), valor));
+            }
+            RoaringBitmap daDimensao = RoaringBitmap.or(alternativas.iterator());
+            resultado = resultado == null ? daDimensao : RoaringBitmap.and(resultado, daDimensao);
+        }
+
+        if (resultado == null) {
+            resultado = RoaringBitmap.bitmapOfRange(0, cubo.getLinhas());
+        }
+        selecao = resultado;
+        return selecao;
+    }
+}
@@ -0,0 +1,144 @@
+package org.intuitivecare.desafio.cubo;
+
+import org.intuitivecare.desafio.model.Despesa;
+import org.roaringbitmap.RoaringBitmap;
+import org.roaringbitmap.RoaringBitmapWriter;
+
+import java.math.RoundingMode;
+import java.util.*;
+
+/**
+ * Cubo OLAP em memória sobre as despesas (imutável depois de construído).
+ * Armazenamento colunar: os valores ficam num long[] em centavos e cada dimensão tem
+ * um dicionário (valor -> código), a coluna de códigos por linha e um bitmap Roaring por valor.
+ * Filtros em várias dimensões viram OR/AND de bitmaps em vez de varrer a tabela.
+ */
+public class CuboDespesas {
+
+    private static final Dimensao[] DIMENSOES = Dimensao.values();
+
+    private final int linhas;
+    private final long[] centavos;
+    private final String[][] valores;         // [dimensão][código] -> valor
+    private final Map<String, Integer>[] codigos; // [dimensão] valor -> código
+    private final int[][] colunas;            // [dimensão][linha] -> código
+    private final RoaringBitmap[][] bitmaps;  // [dimensão][código] -> linhas
+
+    private CuboDespesas(Construtor c) {
+        this.linhas = c.linhas;
+        this.centavos = Arrays.copyOf(c.centavos, c.linhas);
+        this.valores = new String[DIMENSOES.length][];
+        this.codigos = c.codigos;
+        this.colunas = new int[DIMENSOES.length][];
+        this.bitmaps = new RoaringBitmap[DIMENSOES.length][];
+
+        for (int dim = 0; dim < DIMENSOES.length; dim++) {
+            valores[dim] = c.valores.get(dim).toArray(new String[0]);
+            colunas[dim] = Arrays.copyOf(c.colunas[dim], c.linhas);
+            bitmaps[dim] = new RoaringBitmap[valores[dim].length];
+            for (int codigo = 0; codigo < valores[dim].length; codigo++) {
+                RoaringBitmap bitmap = c.bitmaps.get(dim).get(codigo).get();
+                bitmap.runOptimize();
+                bitmaps[dim][codigo] = bitmap;
+            }
+        }
+    }
+
+    public static Construtor construtor() {
+        return new Construtor();
+    }
+
+    public static CuboDespesas vazio() {
+        return new Construtor().construir();
+    }
+
+    /** Inicia uma consulta sobre todas as linhas do cubo. */
+    public ConsultaCubo consulta() {
+        return new ConsultaCubo(this);
+    }
+
+    public int getLinhas() { return linhas; }
+
+    /** Valores distintos de uma dimensão (na ordem em que apareceram na carga). */
+    public List<String> valoresDe(Dimensao dimensao) {
+        return Collections.unmodifiableList(Arrays.asList(valores[dimensao.ordinal()]));
+    }
+
+    // --- Acesso usado pela ConsultaCubo ---
+
+    long[] centavos() { return centavos; }
+
+    int[] coluna(Dimensao dimensao) { return colunas[dimensao.ordinal()]; }
+
+    String valor(Dimensao dimensao, int codigo) { return valores[dimensao.ordinal()][codigo]; }
+
+    int cardinalidade(Dimensao dimensao) { return valores[dimensao.ordinal()].length; }
+
+    /** Bitmap das linhas com o valor informado (vazio se o valor não existe no cubo). */
+    RoaringBitmap linhasCom(Dimensao dimensao, String valor) {
+        Integer codigo = codigos[dimensao.ordinal()].get(valor);
+        return codigo == null ? new RoaringBitmap() : bitmaps[dimensao.ordinal()][codigo];
+    }
+
+    /**
+     * Acumula despesas enriquecidas e gera o cubo. Não é thread-safe.
+     */
+    public static class Construtor {
+
+        private int linhas;
+        private long[] centavos = new long[1024];
+        private final List<List<String>> valores = new ArrayList<>();
+        @SuppressWarnings("unchecked")
+        private final Map<String, Integer>[] codigos = new Map[DIMENSOES.length];
+        private final int[][] colunas = new int[DIMENSOES.length][1024];
+        // Writer: escrita sequencial de linhas crescentes, bem mais barata que RoaringBitmap.add()
+        private final List<List<RoaringBitmapWriter<RoaringBitmap>>> bitmaps = new ArrayList<>();
+
+        private Construtor() {
+            for (int dim = 0; dim < DIMENSOES.length; dim++) {
+                valores.add(new ArrayList<>());
+                codigos[dim] = new HashMap<>();
+                bitmaps.add(new ArrayList<>());
+            }
+        }
+
+        public Construtor adicionar(Despesa d) {
+            if (linhas == centavos.length) {
+                int novaCapacidade = centavos.length << 1;
+                centavos = Arrays.copyOf(centavos, novaCapacidade);
+                for (int dim = 0; dim < DIMENSOES.length; dim++) {
+                    colunas[dim] = Arrays.copyOf(colunas[dim], novaCapacidade);
+                }
+            }
+
+            int linha = linhas++;
+            // O parser gera valores com 2 casas; setScale só protege de valores vindos de outras fontes
+            centavos[linha] = d.getValor().setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
+
+            for (int dim = 0; dim < DIMENSOES.length; dim++) {
+                String valor = DIMENSOES[dim].valorDe(d);
+                Integer codigo = codigos[dim].get(valor);
+                if (codigo == null) {
+                    codigo = valores.get(dim).size();
+                    codigos[dim].put(valor, codigo);
+                    valores.get(dim).add(valor);
+                    bitmaps.get(dim).add(RoaringBitmapWriter.writer().get());
+                }
+                colunas[dim][linha] = codigo;
+                bitmaps.get(dim).get(codigo).add(linha);
+            }
+            return this;
+        }
+
+        public Construtor adicionarTodas(Collection<Despesa> despesas) {
+            for (Despesa d : despesas) {
+                adicionar(d);
+            }
+            return this;
+        }
+
+        public CuboDespesas construir() {
+            return new CuboDespesas(this);
+        }
+    }
+}
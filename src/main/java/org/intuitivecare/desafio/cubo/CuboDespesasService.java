@@ -0,0 +1,28 @@
+package org.intuitivecare.desafio.cubo;
+
+import org.springframework.stereotype.Service;
+
+/**
+ * Mantém o cubo de despesas atual. O ETL publica um cubo novo a cada carga e a troca é atômica:
+ * consultas em andamento continuam no cubo anterior.
+ */
+@Service
+public class CuboDespesasService {
+
+    private volatile CuboDespesas cubo = CuboDespesas.vazio();
+
+    /** Publica um cubo já construído (ex: acumulado trimestre a trimestre pelo ETL). */
+    public void publicar(CuboDespesas novo) {
+        this.cubo = novo;
+        System.out.println("   Cubo de despesas publicado: " + novo.getLinhas() + " linhas.");
+    }
+
+    /** Inicia uma consulta no cubo publicado mais recente. */
+    public ConsultaCubo consulta() {
+        return cubo.consulta();
+    }
+
+    public CuboDespesas getCubo() {
+        return cubo;
+    }
+}
@@ -0,0 +1,32 @@
+package org.intuitivecare.desafio.cubo;
+
+import org.intuitivecare.desafio.model.Despesa;
+
+import java.util.function.Function;
+
+/**
+ * Dimensões do cubo de despesas. Cada uma sabe extrair seu valor de uma despesa já enriquecida.
+ */
+public enum Dimensao {
+
+    UF(Despesa::getUf),
+    MODALIDADE(Despesa::getModalidade),
+    PERIODO(d -> d.getAno() + "-T" + d.getTrimestre()),
+    // Grupo da conta contábil: os 2 primeiros dígitos do plano da ANS (ex: 41 = eventos indenizáveis)
+    GRUPO_CONTA(d -> d.getConta() != null && d.getConta().length() >= 2 ? d.getConta().substring(0, 2) : null),
+    OPERADORA(Despesa::getRegistroAns);
+
+    /** Valor usado quando a despesa não tem a informação (ex: operadora fora do cadastro). */
+    public static final String NAO_INFORMADO = "N/I";
+
+    private final Function<Despesa, String> extrator;
+
+    Dimensao(Function<Despesa, String> extrator) {
+        this.extrator = extrator;
+    }
+
+    public String valorDe(Despesa d) {
+        String valor = extrator.apply(d);
+        return valor == null || valor.isBlank() ? NAO_INFORMADO : valor;
+    }
+}
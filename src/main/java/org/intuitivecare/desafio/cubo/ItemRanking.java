@@ -0,0 +1,29 @@
+package org.intuitivecare.desafio.cubo;
+
+import java.math.BigDecimal;
+
+/**
+ * Linha de um top-N do cubo: valor da dimensão, soma (em centavos) e quantidade de lançamentos.
+ */
+public class ItemRanking {
+
+    private final String valor;
+    private final long somaCentavos;
+    private final long contagem;
+
+    public ItemRanking(String valor, long somaCentavos, long contagem) {
+        this.valor = valor;
+        this.somaCentavos = somaCentavos;
+        this.contagem = contagem;
+    }
+
+    public String getValor() { return valor; }
+    public long getSomaCentavos() { return somaCentavos; }
+    public long getContagem() { return contagem; }
+    public BigDecimal getSoma() { return BigDecimal.valueOf(somaCentavos, 2); }
+
+    @Override
+    public String toString() {
+        return valor + "=" + getSoma() + " (" + contagem + ")";
+    }
+}
@@ -0,0 +1,309 @@
+package org.intuitivecare.desafio.delta;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.intuitivecare.desafio.model.Despesa;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Detecção de alterações linha a linha entre execuções do ETL.
+ * Para cada trimestre guarda um arquivo de impressões digitais ordenado por (registro, conta):
+ * só a chave e um hash de 64 bits do conteúdo. Na execução seguinte o trimestre novo (acumulado lote a
+ * lote numa {@link ComparacaoTrimestre}, sem guardar as despesas inteiras) é ordenado
+ * e comparado em merge com o arquivo anterior (lido em streaming), e só as linhas inseridas,
+ * alteradas e removidas vão para o delta_despesas.csv.
+ * Trimestres que não foram processados na execução não geram remoções.
+ */
+@Service
+public class DeltaDespesasService {
+
+    private static final Path DIRETORIO = Paths.get("dados_delta");
+    private static final Path ARQUIVO_DELTA = Paths.get("delta_despesas.csv");
+
+    // Cabeçalho do arquivo de impressões: muda a versão se o formato ou o hash mudarem
+    private static final int MAGICO = 0x44454C54; // "DELT"
+    // v2: chave pelo Registro ANS (a v1 usava o CNPJ que o enriquecimento gravava no lugar dele)
+    private static final int VERSAO = 2;
+
+    private static final Comparator<Entrada> ORDEM = Comparator
+            .comparing((Entrada e) -> e.registro)
+            .thenComparing(e -> e.conta);
+
+    private final boolean habilitado;
+
+    public DeltaDespesasService(@Value("${etl.delta.enabled:false}") boolean habilitado) {
+        this.habilitado = habilitado;
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /** Abre o arquivo de delta da execução. As impressões novas só valem após {@link EscritorDelta#concluir()}. */
+    public EscritorDelta abrir() throws IOException {
+        return abrir(ARQUIVO_DELTA, DIRETORIO);
+    }
+
+    public EscritorDelta abrir(Path arquivoDelta, Path diretorioImpressoes) throws IOException {
+        Files.createDirectories(diretorioImpressoes);
+        return new EscritorDelta(arquivoDelta, diretorioImpressoes);
+    }
+
+    /**
+     * Compara as despesas enriquecidas de um trimestre com a execução anterior e grava as diferenças.
+     * Pode ser chamado em paralelo para trimestres diferentes.
+     */
+    public void compararTrimestre(int ano, int trimestre, List<Despesa> despesas, EscritorDelta delta) throws IOException {
+        ComparacaoTrimestre comparacao = novaComparacao(ano, trimestre);
+        comparacao.adicionar(despesas);
+        comparacao.comparar(delta);
+    }
+
+    /** Inicia a comparação de um trimestre que chega em lotes (ex: lotes do parser). */
+    public ComparacaoTrimestre novaComparacao(int ano, int trimestre) {
+        return new ComparacaoTrimestre(ano, trimestre);
+    }
+
+    /**
+     * Impressões de um trimestre acumuladas lote a lote. Cada linha guarda só a chave, o hash e os campos
+     * que saem no delta; a Despesa do lote pode ser descartada logo depois de {@link #adicionar(List)}.
+     */
+    public static final class ComparacaoTrimestre {
+
+        private final int ano;
+        private final int trimestre;
+        private final List<Entrada> novas = new ArrayList<>();
+
+        private ComparacaoTrimestre(int ano, int trimestre) {
+            this.ano = ano;
+            this.trimestre = trimestre;
+        }
+
+        public void adicionar(List<Despesa> despesas) {
+            for (Despesa d : despesas) {
+                novas.add(new Entrada(d.getRegistroAns(), d.getConta(), impressao(d),
+                        d.getCnpj(), d.getRazaoSocial(), d.getValor()));
+            }
+        }
+
+        /** Ordena, compara com o arquivo da execução anterior e grava as diferenças no delta. */
+        public void comparar(EscritorDelta delta) throws IOException {
+            novas.sort(ORDEM);
+            compararOrdenadas(ano, trimestre, novas, delta);
+            novas.clear();
+        }
+    }
+
+    private static void compararOrdenadas(int ano, int trimestre, List<Entrada> novas, EscritorDelta delta) throws IOException {
+        Path anterior = delta.diretorio.resolve(nomeArquivo(ano, trimestre));
+        Path novo = delta.diretorio.resolve(nomeArquivo(ano, trimestre) + ".novo");
+        long[] contagem = new long[OperacaoDelta.values().length];
+
+        try (LeitorImpressoes leitor = new LeitorImpressoes(anterior);
+             DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(novo)))) {
+            saida.writeInt(MAGICO);
+            saida.writeInt(VERSAO);
+
+            Entrada antiga = leitor.proxima();
+            Entrada ultima = null;
+            for (Entrada nova : novas) {
+                // Chave repetida (não deveria passar pela validação): vale a primeira
+                if (ultima != null && ORDEM.compare(ultima, nova) == 0) continue;
+                ultima = nova;
+
+                while (antiga != null && ORDEM.compare(antiga, nova) < 0) {
+                    delta.registrar(OperacaoDelta.REMOVIDA, antiga, ano, trimestre, contagem);
+                    antiga = leitor.proxima();
+                }
+                if (antiga != null && ORDEM.compare(antiga, nova) == 0) {
+                    if (antiga.impressao != nova.impressao) {
+                        delta.registrar(OperacaoDelta.ALTERADA, nova, ano, trimestre, contagem);
+                    }
+                    antiga = leitor.proxima();
+                } else {
+                    delta.registrar(OperacaoDelta.INSERIDA, nova, ano, trimestre, contagem);
+                }
+
+                saida.writeBoolean(true);
+                saida.writeUTF(nova.registro);
+                saida.writeUTF(nova.conta);
+                saida.writeLong(nova.impressao);
+            }
+            while (antiga != null) {
+                delta.registrar(OperacaoDelta.REMOVIDA, antiga, ano, trimestre, contagem);
+                antiga = leitor.proxima();
+            }
+            saida.writeBoolean(false); // fim dos registros
+        }
+        delta.pendente(novo, anterior);
+
+        System.out.println("   Delta " + trimestre + "T" + ano + ": " + contagem[OperacaoDelta.INSERIDA.ordinal()]
+                + " inseridas, " + contagem[OperacaoDelta.ALTERADA.ordinal()] + " alteradas, "
+                + contagem[OperacaoDelta.REMOVIDA.ordinal()] + " removidas.");
+    }
+
+    private static String nomeArquivo(int ano, int trimestre) {
+        return "despesas_" + ano + "_t" + trimestre + ".bin";
+    }
+
+    /** Hash de 64 bits dos campos que saem para os consumidores (valor e atributos da operadora). */
+    static long impressao(Despesa d) {
+        long h = 0xCBF29CE484222325L;
+        h = misturar(h, d.getValor() == null ? Long.MIN_VALUE
+                : d.getValor().setScale(2, RoundingMode.HALF_EVEN).unscaledValue().longValue());
+        h = misturar(h, d.getRazaoSocial());
+        h = misturar(h, d.getDescricao());
+        h = misturar(h, d.getCnpj());
+        h = misturar(h, d.getModalidade());
+        h = misturar(h, d.getUf());
+        return h;
+    }
+
+    private static long misturar(long h, long valor) {
+        h ^= valor;
+        h *= 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    private static long misturar(long h, String valor) {
+        if (valor == null) return misturar(h, 0x5DEECE66DL);
+        for (int i = 0; i < valor.length(); i++) {
+            h = (h ^ valor.charAt(i)) * 0x100000001B3L;
+        }
+        return misturar(h, valor.length());
+    }
+
+    private static final class Entrada {
+        final String registro;
+        final String conta;
+        final long impressao;
+        // Campos de saída; null para entradas lidas da execução anterior
+        final String cnpj;
+        final String razaoSocial;
+        final BigDecimal valor;
+
+        Entrada(String registro, String conta, long impressao, String cnpj, String razaoSocial, BigDecimal valor) {
+            this.registro = registro;
+            this.conta = conta == null ? "" : conta;
+            this.impressao = impressao;
+            this.cnpj = cnpj;
+            this.razaoSocial = razaoSocial;
+            this.valor = valor;
+        }
+    }
+
+    /** Lê o arquivo de impressões de um trimestre em ordem, sem carregá-lo inteiro. */
+    private static final class LeitorImpressoes implements Closeable {
+
+        private final DataInputStream entrada;
+
+        LeitorImpressoes(Path arquivo) throws IOException {
+            DataInputStream in = null;
+            if (Files.exists(arquivo)) {
+                in = new DataInputStream(new BufferedInputStream(Files.newInputStream(arquivo)));
+                if (in.readInt() != MAGICO || in.readInt() != VERSAO) {
+                    // Formato antigo: tratado como primeira execução (tudo vira inserção)
+                    System.err.println("   ALERTA: impressões em formato desconhecido ignoradas: " + arquivo);
+                    in.close();
+                    in = null;
+                }
+            }
+            this.entrada = in;
+        }
+
+        Entrada proxima() throws IOException {
+            if (entrada == null || !entrada.readBoolean()) return null;
+            return new Entrada(entrada.readUTF(), entrada.readUTF(), entrada.readLong(), null, null, null);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (entrada != null) entrada.close();
+        }
+    }
+
+    /**
+     * Arquivo de delta de uma execução. Recebe linhas de vários trimestres em paralelo.
+     * O CSV é escrito num ".parcial" e as impressões de cada trimestre em arquivos ".novo" até
+     * {@link #concluir()}: se a execução falhar, o delta publicado continua o da última execução completa
+     * e a próxima compara de novo contra ela.
+     */
+    public static class EscritorDelta implements Closeable {
+
+        private final Path arquivo;
+        private final Path parcial;
+        private final Path diretorio;
+        private final CSVPrinter csvPrinter;
+        private final Map<Path, Path> pendentes = new LinkedHashMap<>(); // novo -> definitivo
+        private final long[] contagem = new long[OperacaoDelta.values().length];
+        private boolean concluido;
+
+        private EscritorDelta(Path arquivo, Path diretorio) throws IOException {
+            this.arquivo = arquivo;
+            this.parcial = arquivo.resolveSibling(arquivo.getFileName() + ".parcial");
+            this.diretorio = diretorio;
+            this.csvPrinter = new CSVPrinter(Files.newBufferedWriter(parcial, StandardCharsets.UTF_8),
+                    CSVFormat.DEFAULT.builder()
+                            .setHeader("Operacao", "RegistroANS", "CNPJ", "Conta", "RazaoSocial", "Trimestre", "Ano",
+                                    "ValorDespesas")
+                            .setDelimiter(';')
+                            .build());
+        }
+
+        private synchronized void registrar(OperacaoDelta operacao, Entrada e, int ano, int trimestre,
+                                            long[] contagemTrimestre) throws IOException {
+            // Remoções só têm a chave: a linha não existe mais nesta execução
+            csvPrinter.printRecord(operacao.getCodigo(), e.registro, e.cnpj != null ? e.cnpj : "", e.conta,
+                    e.razaoSocial != null ? e.razaoSocial : "", trimestre, ano, e.valor != null ? e.valor : "");
+            contagem[operacao.ordinal()]++;
+            contagemTrimestre[operacao.ordinal()]++;
+        }
+
+        private synchronized void pendente(Path novo, Path definitivo) {
+            pendentes.put(novo, definitivo);
+        }
+
+        /** Publica o delta e promove as impressões novas a referência da próxima execução. */
+        public synchronized void concluir() throws IOException {
+            csvPrinter.close(true);
+            // Delta antes das impressões: se a promoção falhar, a próxima execução repete o delta em vez de perdê-lo
+            Files.move(parcial, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            for (Map.Entry<Path, Path> p : pendentes.entrySet()) {
+                Files.move(p.getKey(), p.getValue(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            pendentes.clear();
+            concluido = true;
+            System.out.println("   Delta gravado em " + arquivo.toAbsolutePath() + ": "
+                    + contagem[OperacaoDelta.INSERIDA.ordinal()] + " inseridas, "
+                    + contagem[OperacaoDelta.ALTERADA.ordinal()] + " alteradas, "
+                    + contagem[OperacaoDelta.REMOVIDA.ordinal()] + " removidas.");
+        }
+
+        public synchronized long getContagem(OperacaoDelta operacao) {
+            return contagem[operacao.ordinal()];
+        }
+
+        /** Sem {@link #concluir()}, descarta o delta parcial e as impressões novas (a execução falhou no meio). */
+        @Override
+        public synchronized void close() throws IOException {
+            if (concluido) return;
+            csvPrinter.close();
+            Files.deleteIfExists(parcial);
+            for (Path novo : pendentes.keySet()) {
+                Files.deleteIfExists(novo);
+            }
+            pendentes.clear();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.intuitivecare.desafio.delta;
+
+/**
+ * Tipo de alteração de uma linha entre duas execuções. O código vai para o arquivo de delta.
+ */
+public enum OperacaoDelta {
+
+    INSERIDA("I"),
+    ALTERADA("U"),
+    REMOVIDA("D");
+
+    private final String codigo;
+
+    OperacaoDelta(String codigo) {
+        this.codigo = codigo;
+    }
+
+    public String getCodigo() { return codigo; }
+}
@@ -0,0 +1,111 @@
+package org.intuitivecare.desafio.memoria;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Controla quanto heap o ETL pode ocupar com lotes em processamento e caches.
+ * As etapas reservam uma estimativa em bytes antes de carregar dados e liberam ao terminar;
+ * quando o orçamento está perto do fim, {@link #reservar(long)} bloqueia o produtor até sobrar espaço.
+ * O mesmo orçamento define o tamanho dos lotes e o paralelismo, este pelo que um trimestre acumula até o fim
+ * ({@link #bytesPorTarefa}): num container de 512 MB o ETL roda com lotes pequenos e poucos trimestres em
+ * paralelo; numa máquina grande, mais trimestres e lotes maiores.
+ * Os lotes do parser têm tamanho limitado, então nenhuma reserva isolada passa do orçamento.
+ */
+@Component
+public class GovernadorMemoria {
+
+    /** Estimativa de uma Despesa em memória (objeto + BigDecimal + Strings). */
+    public static final long BYTES_POR_DESPESA = 320;
+    /** Estimativa de uma Operadora no cache do CADOP. */
+    public static final long BYTES_POR_OPERADORA = 480;
+    /** Custo de uma linha no cubo (centavos + colunas de código + parte dos bitmaps). */
+    public static final long BYTES_POR_LINHA_CUBO = 48;
+    /** Impressão do modo delta retida até o fim do trimestre (chave, hash e referências aos campos de saída). */
+    public static final long BYTES_POR_IMPRESSAO_DELTA = 120;
+    /** Linha típica dos CSVs de demonstrações contábeis da ANS; estima as linhas de um trimestre pelo tamanho. */
+    public static final long BYTES_CSV_POR_LINHA = 60;
+
+    // Fração do heap usada quando nenhum orçamento é configurado (o resto fica para o Spring, GC e buffers)
+    private static final double FRACAO_PADRAO_HEAP = 0.6;
+
+    private final long orcamentoBytes;
+    private long reservadoBytes; // lotes em processamento
+    private long fixoBytes;      // caches que vivem a execução toda (operadoras, cubo)
+
+    public GovernadorMemoria(@Value("${etl.memoria.orcamento-mb:0}") long orcamentoMb) {
+        long maximoHeap = Runtime.getRuntime().maxMemory();
+        long orcamento = orcamentoMb > 0 ? orcamentoMb * 1024 * 1024 : (long) (maximoHeap * FRACAO_PADRAO_HEAP);
+        if (orcamento > maximoHeap) {
+            System.err.println("   ALERTA: orçamento de memória (" + orcamentoMb + " MB) maior que o heap ("
+                    + maximoHeap / (1024 * 1024) + " MB). Usando o heap como limite.");
+            orcamento = maximoHeap;
+        }
+        this.orcamentoBytes = orcamento;
+    }
+
+    /**
+     * Reserva bytes para um lote, esperando enquanto o orçamento estiver cheio (backpressure).
+     * Um lote maior que o orçamento inteiro é liberado quando não há mais nada em processamento,
+     * para não travar a execução.
+     */
+    public synchronized void reservar(long bytes) throws InterruptedException {
+        boolean esperou = false;
+        while (reservadoBytes > 0 && reservadoBytes + fixoBytes + bytes > orcamentoBytes) {
+            if (!esperou) {
+                System.out.println("   [memória] Orçamento quase cheio (" + resumo() + "). Aguardando lotes em andamento...");
+                esperou = true;
+            }
+            wait();
+        }
+        reservadoBytes += bytes;
+    }
+
+    public synchronized void liberar(long bytes) {
+        reservadoBytes = Math.max(0, reservadoBytes - bytes);
+        notifyAll();
+    }
+
+    /** Contabiliza memória de longa duração (ex: cache de operadoras). Valores negativos devolvem. */
+    public synchronized void ajustarFixo(long bytes) {
+        fixoBytes = Math.max(0, fixoBytes + bytes);
+        notifyAll();
+    }
+
+    /**
+     * Memória que uma tarefa (um trimestre) acumula até terminar: o lote em andamento mais o que cada linha lida
+     * deixa para trás (a linha no cubo e, no modo delta, a impressão retida até a comparação do trimestre).
+     * Conta todas as linhas do CSV, inclusive as contas que o parser descarta: a estimativa erra para cima.
+     */
+    public static long bytesPorTarefa(long bytesCsv, int tamanhoLote, boolean comDelta) {
+        long linhas = Math.max(0, bytesCsv) / BYTES_CSV_POR_LINHA;
+        long porLinha = BYTES_POR_LINHA_CUBO + (comDelta ? BYTES_POR_IMPRESSAO_DELTA : 0);
+        return tamanhoLote * BYTES_POR_DESPESA + linhas * porLinha;
+    }
+
+    /**
+     * Quantas tarefas de ~bytesPorTarefa (ver {@link #bytesPorTarefa}) cabem em paralelo no orçamento livre,
+     * limitado pelos núcleos e pelo número de tarefas. Sempre ao menos 1: o backpressure de {@link #reservar}
+     * segura uma tarefa que não cabe.
+     */
+    public synchronized int paralelismo(long bytesPorTarefa, int tarefas) {
+        long livre = Math.max(0, orcamentoBytes - fixoBytes - reservadoBytes);
+        long cabem = bytesPorTarefa > 0 ? livre / bytesPorTarefa : Integer.MAX_VALUE;
+        int nucleos = Runtime.getRuntime().availableProcessors();
+        return (int) Math.max(1, Math.min(Math.min(cabem, nucleos), Math.max(1, tarefas)));
+    }
+
+    /**
+     * Tamanho de lote para escrita (ex: batch JDBC): usa até 1/16 do orçamento livre, entre mínimo e máximo.
+     */
+    public synchronized int tamanhoLote(long bytesPorItem, int minimo, int maximo) {
+        long livre = Math.max(0, orcamentoBytes - fixoBytes - reservadoBytes);
+        long itens = livre / 16 / Math.max(1, bytesPorItem);
+        return (int) Math.max(minimo, Math.min(maximo, itens));
+    }
+
+    public synchronized String resumo() {
+        return "reservado=" + reservadoBytes / (1024 * 1024) + " MB, fixo=" + fixoBytes / (1024 * 1024)
+                + " MB, orçamento=" + orcamentoBytes / (1024 * 1024) + " MB";
+    }
+}
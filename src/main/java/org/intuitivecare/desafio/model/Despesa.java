@@ -1,23 +1,16 @@
 package org.intuitivecare.desafio.model;
 
-import jakarta.persistence.Column;
-import jakarta.persistence.Entity;
-import jakarta.persistence.Id;
-import jakarta.persistence.Table;
-
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
-@Entity
-@Table(name = "despesas")
+// Não é mais entidade JPA: a tabela 'despesas' é particionada e mantida pelo ParticionamentoDespesasService
 public class Despesa {
 
 
-    @Id
-    @Column(name = "registro_ans")
     private String registroAns; // Será usado no join depois
     private String razaoSocial;
     private String descricao;
+    private String conta; // Conta contábil da ANS (ex: 41111...)
     private LocalDate data; // Data base do trimestre
     private BigDecimal valor;
     private int ano;
@@ -26,6 +19,9 @@ public class Despesa {
     private String cnpj;
     private String modalidade;
     private String uf;
+    // Rastreabilidade para os rejeitados de etapas posteriores ao parser (ex: R05 no enriquecimento)
+    private String arquivoOrigem;
+    private long linhaOrigem;
 
 // Gere os Getters e Setters
 
@@ -39,6 +35,15 @@ public class Despesa {
     public String getRazaoSocial() { return razaoSocial; }
     public void setRazaoSocial(String razaoSocial) { this.razaoSocial = razaoSocial; }
 
+    public String getDescricao() { return descricao; }
+    public void setDescricao(String descricao) { this.descricao = descricao; }
+
+    public String getConta() { return conta; }
+    public void setConta(String conta) { this.conta = conta; }
+
+    public LocalDate getData() { return data; }
+    public void setData(LocalDate data) { this.data = data; }
+
     public BigDecimal getValor() { return valor; }
     public void setValor(BigDecimal valor) { this.valor = valor; }
 
@@ -48,6 +53,12 @@ public class Despesa {
     public int getTrimestre() { return trimestre; }
     public void setTrimestre(int trimestre) { this.trimestre = trimestre; }
 
+    public String getArquivoOrigem() { return arquivoOrigem; }
+    public void setArquivoOrigem(String arquivoOrigem) { this.arquivoOrigem = arquivoOrigem; }
+
+    public long getLinhaOrigem() { return linhaOrigem; }
+    public void setLinhaOrigem(long linhaOrigem) { this.linhaOrigem = linhaOrigem; }
+
     @Override
     public String toString() {
         return "Despesa{ANS='" + registroAns + "', Valor=" + valor + ", Data=" + trimestre + "/" + ano + "}";
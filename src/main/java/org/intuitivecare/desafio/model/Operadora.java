@@ -14,7 +14,7 @@ public class Operadora {
     @Column(name = "registro_ans")
     private String registroAns;
     private String cnpj;
-    @Transient // Não salva no banco, já que vamos pegar da tabela Operadoras via Join
+    @Column(name = "razao_social")
     private String razaoSocial;
     private String modalidade;
     private String uf;
@@ -9,7 +9,9 @@ import org.springframework.stereotype.Service;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 @Service
@@ -19,15 +21,17 @@ public class AnsScrapper {
     // Regex para identificar anos (ex: 2023, 2024)
     private static final Pattern YEAR_PATTERN = Pattern.compile("^20\\d{2}$");
 
+    // URL da pasta de demonstrações, resolvida na primeira varredura
+    private String urlDemonstracoes;
+    // Pastas de ano (e de trimestre) dos períodos selecionados na última varredura, observadas pelo modo watch
+    private final Set<String> urlsPeriodos = new LinkedHashSet<>();
+
     /* Método principal que orquestra a busca pelos 3 ultimo trimestres. */
     public List<String> buscarLinksUltimos3Trimestres() throws IOException {
         System.out.println(">>> Iniciando varredura na ANS...");
 
         // 1. Acessa a raiz e encontra a pasta de Demonstrações Contábeis
-        String demonstracoesUrl = encontrarLinkDemonstracoes(ANS_ROOT_URL);
-        if (demonstracoesUrl == null) {
-            throw new IOException("Pasta 'demonstracoes_contabeis' não encontrada na raiz.");
-        }
+        String demonstracoesUrl = buscarUrlDemonstracoes();
         System.out.println("Pasta de demonstrações encontrada: " + demonstracoesUrl);
 
         // 2. Varre todos os anos e trimestres disponíveis
@@ -38,6 +42,7 @@ public class AnsScrapper {
 
         // 4. Seleciona os 3 primeiros (Top 3)
         List<String> linksFinais = new ArrayList<>();
+        Set<String> pastas = new LinkedHashSet<>();
         int limite = Math.min(3, todosPeriodos.size());
 
         System.out.println(">>> Trimestres selecionados para download:");
@@ -45,11 +50,47 @@ public class AnsScrapper {
             PeriodoAns p = todosPeriodos.get(i);
             System.out.println("   " + (i+1) + "º: " + p.getAno() + "/" + p.getTrimestre() + " -> " + p.getUrl());
             linksFinais.add(p.getUrl());
+            pastas.add(p.getUrlAno());
+            // Trimestre publicado como pasta (e não como ZIP direto): a listagem dela também é observada
+            if (!p.getUrl().toLowerCase().endsWith(".zip")) {
+                pastas.add(p.getUrl());
+            }
         }
 
+        synchronized (urlsPeriodos) {
+            urlsPeriodos.clear();
+            urlsPeriodos.addAll(pastas);
+        }
         return linksFinais;
     }
 
+    /**
+     * URL da pasta de Demonstrações Contábeis (resolvida uma vez e reaproveitada pelo modo watch).
+     */
+    public String buscarUrlDemonstracoes() throws IOException {
+        if (urlDemonstracoes == null) {
+            urlDemonstracoes = encontrarLinkDemonstracoes(ANS_ROOT_URL);
+            if (urlDemonstracoes == null) {
+                throw new IOException("Pasta 'demonstracoes_contabeis' não encontrada na raiz.");
+            }
+        }
+        return urlDemonstracoes;
+    }
+
+    /**
+     * Listagens observadas pelo modo watch: a pasta de demonstrações (ano novo) e as pastas de ano/trimestre
+     * dos períodos selecionados na última varredura. Um ZIP republicado dentro de um ano já existente
+     * nem sempre altera a listagem raiz, mas altera a listagem do ano.
+     */
+    public List<String> urlsMonitoradas() throws IOException {
+        List<String> urls = new ArrayList<>();
+        urls.add(buscarUrlDemonstracoes());
+        synchronized (urlsPeriodos) {
+            urls.addAll(urlsPeriodos);
+        }
+        return urls;
+    }
+
     /**
      * Passo 1: Encontra o link correto para Demonstrações Contábeis
      */
@@ -107,7 +148,7 @@ public class AnsScrapper {
 
             if (trimestre != null) {
                 String finalUrl = resolveUrl(urlAno, href);
-                periodosDoAno.add(new PeriodoAns(ano, trimestre, finalUrl));
+                periodosDoAno.add(new PeriodoAns(ano, trimestre, finalUrl, urlAno));
             }
         }
         return periodosDoAno;
@@ -141,16 +182,19 @@ public class AnsScrapper {
         private int ano;
         private int trimestre;
         private String url;
+        private String urlAno;
 
-        public PeriodoAns(int ano, int trimestre, String url) {
+        public PeriodoAns(int ano, int trimestre, String url, String urlAno) {
             this.ano = ano;
             this.trimestre = trimestre;
             this.url = url;
+            this.urlAno = urlAno;
         }
 
         public int getAno() { return ano; }
         public int getTrimestre() { return trimestre; }
         public String getUrl() { return url; }
+        public String getUrlAno() { return urlAno; }
 
         @Override
         public int compareTo(PeriodoAns outro) {
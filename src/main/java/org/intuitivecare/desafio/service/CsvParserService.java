@@ -4,6 +4,8 @@ import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 import org.intuitivecare.desafio.model.Despesa;
+import org.intuitivecare.desafio.validacao.MotivoRejeicao;
+import org.intuitivecare.desafio.validacao.ValidadorDespesas;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
@@ -12,14 +14,32 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
 public class CsvParserService {
 
+    // Ex: "1T2025.csv", "1t2025_dados.csv" -> trimestre 1, ano 2025
+    private static final Pattern PADRAO_TRIMESTRE = Pattern.compile("([1-4])T(20\\d{2})");
+
+    /**
+     * Recebe as despesas válidas de um arquivo em lotes. Um lote vem sempre de um único arquivo,
+     * portanto de um único ano/trimestre.
+     */
+    @FunctionalInterface
+    public interface ConsumidorLote {
+        void aceitar(List<Despesa> lote) throws Exception;
+    }
+
     /**
      * Processa um arquivo desconhecido, tentando detectar formato e encoding.
+     * Linhas reprovadas pelo validador vão para o arquivo de rejeitados, sem exceções no laço.
+     * As despesas válidas são entregues em lotes de até tamanhoLote, sem manter o arquivo inteiro em memória.
+     * @return quantidade de despesas aceitas.
      */
-    public List<Despesa> parse(File arquivo) throws IOException {
+    public long parse(File arquivo, ValidadorDespesas validador, int tamanhoLote,
+                      ConsumidorLote consumidor) throws Exception {
         System.out.println("   Iniciando parser do arquivo: " + arquivo.getName());
 
         // 1. Detecção de Encoding (Simples)
@@ -30,7 +50,15 @@ public class CsvParserService {
         char separador = detectarSeparador(arquivo, encoding);
         System.out.println("      -> Detectado: Separador=['" + separador + "'] Encoding=[" + encoding + "]");
 
-        List<Despesa> despesas = new ArrayList<>();
+        // 3. Ano/trimestre vêm do nome do arquivo: resolvido uma vez, não por linha
+        int[] periodo = extrairPeriodoDoNomeArquivo(arquivo.getName());
+        int ano = periodo[0];
+        int trimestre = periodo[1];
+
+        int capacidade = Math.min(tamanhoLote, 1024);
+        List<Despesa> lote = new ArrayList<>(capacidade);
+        long aceitas = 0;
+        long rejeitadas = 0;
 
         // Configura o parser do Apache Commons CSV
         CSVFormat format = CSVFormat.DEFAULT.builder()
@@ -48,37 +76,50 @@ public class CsvParserService {
             System.out.println("      [DEBUG] Cabeçalhos encontrados: " + csvParser.getHeaderNames());
             for (CSVRecord record : csvParser) {
                 // Lógica de Extração Resiliente
-                // Verifica se é uma linha de 'EVENTOS' ou 'DESPESA'
-                // Adaptei os nomes das colunas conforme o CSV
-                try {
-                    // Tenta mapear colunas comuns. A ANS muda nomes as vezes (ex: "CD_OPERADORA" vs "REG_ANS")
-                    String regAns = getValorSeguro(record, "REG_ANS", "CD_OPERADORA", "Registro");
-                    String nome = getValorSeguro(record, "RAZAO_SOCIAL", "NM_RAZAO_SOCIAL", "Operadora");
-                    String valorStr = getValorSeguro(record, "VL_SALDO_FINAL", "VALOR", "Vl_Saldo_Final");
-                    String conta = getValorSeguro(record, "CD_CONTA_CONTABIL", "CD_CONTA", "Conta");
-
-                    // FILTRO: Apenas contas de DESPESA (geralmente começam com '4' no plano de contas da ANS)
-                    // Ajuste essa regra se necessário ao olhar o CSV
-                    if (conta != null && conta.startsWith("4")) {
-                        Despesa d = new Despesa();
-                        d.setRegistroAns(regAns);
-                        d.setRazaoSocial(nome);
-                        d.setValor(parseValor(valorStr));
-
-                        // Extrai ano/trimestre do nome do arquivo (ex: 1T2025.csv)
-                        preencherDataPeloNomeArquivo(d, arquivo.getName());
-
-                        despesas.add(d);
-                    }
-                } catch (Exception e) {
-                    // Loga erro mas não para o processamento (Resiliência)
-                    // System.err.println("Erro linha " + record.getRecordNumber() + ": " + e.getMessage());
+                // Tenta mapear colunas comuns. A ANS muda nomes as vezes (ex: "CD_OPERADORA" vs "REG_ANS")
+                String regAns = getValorSeguro(record, "REG_ANS", "CD_OPERADORA", "Registro");
+                String nome = getValorSeguro(record, "RAZAO_SOCIAL", "NM_RAZAO_SOCIAL", "Operadora");
+                String valorStr = getValorSeguro(record, "VL_SALDO_FINAL", "VALOR", "Vl_Saldo_Final");
+                String conta = getValorSeguro(record, "CD_CONTA_CONTABIL", "CD_CONTA", "Conta");
+
+                // FILTRO: Apenas contas de DESPESA (geralmente começam com '4' no plano de contas da ANS)
+                // Ajuste essa regra se necessário ao olhar o CSV
+                if (conta == null || !conta.startsWith("4")) {
+                    continue;
+                }
+
+                long centavos = ValidadorDespesas.parseCentavos(valorStr);
+                MotivoRejeicao motivo = validador.validarLinha(arquivo.getName(), record.getRecordNumber(),
+                        regAns, conta, valorStr, centavos, ano, trimestre);
+                if (motivo != null) {
+                    rejeitadas++;
+                    continue;
+                }
+
+                Despesa d = new Despesa();
+                d.setRegistroAns(regAns);
+                d.setRazaoSocial(nome);
+                d.setConta(conta);
+                d.setValor(BigDecimal.valueOf(centavos, 2));
+                d.setAno(ano);
+                d.setTrimestre(trimestre);
+                d.setArquivoOrigem(arquivo.getName());
+                d.setLinhaOrigem(record.getRecordNumber());
+
+                lote.add(d);
+                aceitas++;
+                if (lote.size() >= tamanhoLote) {
+                    consumidor.aceitar(lote);
+                    lote = new ArrayList<>(capacidade);
                 }
             }
         }
+        if (!lote.isEmpty()) {
+            consumidor.aceitar(lote);
+        }
 
-        System.out.println("      -> Linhas processadas com sucesso: " + despesas.size());
-        return despesas;
+        System.out.println("      -> Linhas processadas com sucesso: " + aceitas + " | Rejeitadas: " + rejeitadas);
+        return aceitas;
     }
 
     private char detectarSeparador(File arquivo, Charset encoding) throws IOException {
@@ -93,46 +134,25 @@ public class CsvParserService {
         return ';'; // Padrão Brasil
     }
 
+    // isSet evita a IllegalArgumentException de record.get() em linhas com menos colunas que o cabeçalho
     private String getValorSeguro(CSVRecord record, String... colunasPossiveis) {
         for (String col : colunasPossiveis) {
             if (record.isMapped(col)) {
-                return record.get(col);
+                return record.isSet(col) ? record.get(col) : null;
             }
         }
         return null;
     }
 
-    private BigDecimal parseValor(String valorStr) {
-        if (valorStr == null) return BigDecimal.ZERO;
-        try {
-            // Converte formato brasileiro (1.000,00) para BigDecimal
-            String limpo = valorStr.replace(".", "").replace(",", ".");
-            return new BigDecimal(limpo);
-        } catch (Exception e) {
-            return BigDecimal.ZERO;
-        }
-    }
-
-    private void preencherDataPeloNomeArquivo(Despesa d, String nomeArquivo) {
-        // Ex: "1T2025.csv" -> Trimestre 1, Ano 2025
-        try {
-            String nome = nomeArquivo.toUpperCase();
-            int ano = 0;
-            int tri = 0;
-
-            if (nome.contains("2025")) ano = 2025;
-            else if (nome.contains("2024")) ano = 2024;
-            else if (nome.contains("2023")) ano = 2023;
-
-            if (nome.contains("1T")) tri = 1;
-            else if (nome.contains("2T")) tri = 2;
-            else if (nome.contains("3T")) tri = 3;
-            else if (nome.contains("4T")) tri = 4;
-
-            d.setAno(ano);
-            d.setTrimestre(tri);
-        } catch (Exception e) {
-            // Ignora
+    /**
+     * Ex: "1T2025.csv" -> {2025, 1}. Retorna {0, 0} se não identificar (as linhas serão rejeitadas).
+     */
+    private int[] extrairPeriodoDoNomeArquivo(String nomeArquivo) {
+        Matcher m = PADRAO_TRIMESTRE.matcher(nomeArquivo.toUpperCase());
+        if (m.find()) {
+            return new int[]{Integer.parseInt(m.group(2)), Integer.parseInt(m.group(1))};
         }
+        System.err.println("      ALERTA: ano/trimestre não identificado no nome do arquivo " + nomeArquivo);
+        return new int[]{0, 0};
     }
 }
\ No newline at end of file
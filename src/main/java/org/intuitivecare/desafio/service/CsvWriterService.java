@@ -6,8 +6,10 @@ import org.intuitivecare.desafio.model.Despesa;
 import org.springframework.stereotype.Service;
 
 import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 
@@ -16,28 +18,49 @@ public class CsvWriterService {
 
     private static final String ARQUIVO_SAIDA = "consolidado_despesas.csv";
 
-    public void gerarArquivoConsolidado(List<Despesa> todasDespesas) throws IOException {
-        System.out.println("--- [1.3] Gerando CSV Consolidado ---");
-        System.out.println("   Escrevendo " + todasDespesas.size() + " registros em " + ARQUIVO_SAIDA + "...");
+    /**
+     * Abre o consolidado para escrita incremental (um lote por trimestre), sem manter tudo em memória.
+     */
+    public EscritorConsolidado abrirConsolidado() throws IOException {
+        return new EscritorConsolidado(Paths.get(ARQUIVO_SAIDA));
+    }
+
+    /**
+     * Escritor do CSV consolidado. Pode receber lotes de várias threads.
+     */
+    public static class EscritorConsolidado implements Closeable {
 
-        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(ARQUIVO_SAIDA));
-             CSVPrinter csvPrinter = new CSVPrinter(writer, CSVFormat.DEFAULT
-                     .builder()
-                     .setHeader("CNPJ", "RazaoSocial", "Trimestre", "Ano", "ValorDespesas")
-                     .setDelimiter(';') // Padrão API pública
-                     .build())) {
+        private final CSVPrinter csvPrinter;
+        private long registros;
+
+        private EscritorConsolidado(Path arquivo) throws IOException {
+            BufferedWriter writer = Files.newBufferedWriter(arquivo);
+            this.csvPrinter = new CSVPrinter(writer, CSVFormat.DEFAULT
+                    .builder()
+                    .setHeader("CNPJ", "RazaoSocial", "Trimestre", "Ano", "ValorDespesas")
+                    .setDelimiter(';') // Padrão API pública
+                    .build());
+        }
 
-            for (Despesa d : todasDespesas) {
+        public synchronized void escrever(List<Despesa> despesas) throws IOException {
+            for (Despesa d : despesas) {
                 csvPrinter.printRecord(
-                        d.getRegistroAns(), // O teste pede CNPJ, mas nos arquivos de despesa geralmente vem o Registro ANS.
+                        // O teste pede CNPJ; sem match no cadastro, fica o Registro ANS que veio no arquivo
+                        d.getCnpj() != null ? d.getCnpj() : d.getRegistroAns(),
                         d.getRazaoSocial(),
                         d.getTrimestre(),
                         d.getAno(),
                         d.getValor()
                 );
             }
-            csvPrinter.flush();
+            registros += despesas.size();
+        }
+
+        public synchronized long getRegistros() { return registros; }
+
+        @Override
+        public synchronized void close() throws IOException {
+            csvPrinter.close(true);
         }
-        System.out.println("   Arquivo gerado com sucesso: " + Paths.get(ARQUIVO_SAIDA).toAbsolutePath());
     }
-}
\ No newline at end of file
+}
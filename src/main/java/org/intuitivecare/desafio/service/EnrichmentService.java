@@ -5,33 +5,59 @@ import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 import org.intuitivecare.desafio.model.Despesa;
 import org.intuitivecare.desafio.model.Operadora;
+import org.intuitivecare.desafio.validacao.MotivoRejeicao;
+import org.intuitivecare.desafio.validacao.ValidadorDespesas;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
-import java.net.URL;
 import java.nio.charset.Charset;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 @Service
 public class EnrichmentService {
 
     private static final String URL_CADASTRO = "https://dadosabertos.ans.gov.br/FTP/PDA/operadoras_de_plano_de_saude_ativas/Relatorio_cadop.csv";
+    private static final File ARQUIVO_CADASTRO = new File("dados_downloads", "Relatorio_cadop.csv");
 
-
+    private final HttpCondicionalService httpCondicionalService;
 
     // Cache em memória: Chave = RegistroANS, Valor = Dados da Operadora
     private Map<String, Operadora> cacheOperadoras = new HashMap<>();
 
+    public EnrichmentService(HttpCondicionalService httpCondicionalService) {
+        this.httpCondicionalService = httpCondicionalService;
+    }
 
     public void baixarECarregarOperadoras() throws IOException {
         System.out.println("--- [2.2] Iniciando Download do Cadastro de Operadoras ---");
+        httpCondicionalService.baixarSeAlterado(URL_CADASTRO, ARQUIVO_CADASTRO);
+        carregarOperadoras();
+    }
+
+    /**
+     * Usado pelo modo watch: só relê o CADOP se a ANS publicou uma versão nova.
+     * @return true se o cache de operadoras foi recarregado.
+     */
+    public boolean atualizarOperadorasSeAlterado() throws IOException {
+        boolean alterado = httpCondicionalService.baixarSeAlterado(URL_CADASTRO, ARQUIVO_CADASTRO);
+        if (alterado || cacheOperadoras.isEmpty()) {
+            carregarOperadoras();
+        }
+        return alterado;
+    }
 
-        // Baixar direto para memória ou arquivo temp. Como é pequeno, stream direto funciona bem.
+    private void carregarOperadoras() throws IOException {
+        carregarOperadoras(ARQUIVO_CADASTRO);
+    }
+
+    /**
+     * Carrega o cache a partir de um arquivo CADOP local (também usado no reprocessamento de arquivos locais).
+     */
+    public void carregarOperadoras(File arquivoCadastro) throws IOException {
         // Aparentemente o arquivo da ANS é CSV separado por ponto e vírgula, encoding ISO-8859-1
+        cacheOperadoras.clear();
 
-        try (BufferedInputStream in = new BufferedInputStream(new URL(URL_CADASTRO).openStream());
+        try (BufferedInputStream in = new BufferedInputStream(new FileInputStream(arquivoCadastro));
              // O arquivo CADOP geralmente usa ISO-8859-1
              InputStreamReader reader = new InputStreamReader(in, Charset.forName("ISO-8859-1"));
              CSVParser parser = new CSVParser(reader, CSVFormat.DEFAULT.builder()
@@ -84,30 +110,51 @@ public class EnrichmentService {
     }
 
     /**
-     * Enriquece a lista de despesas com os dados da operadora
+     * Enriquece a lista de despesas com os dados da operadora.
+     * Despesas de operadoras com CNPJ inválido no cadastro são removidas e vão para os rejeitados.
+     * Chamado uma vez por lote do parser.
+     * @return quantidade de despesas sem correspondência no cadastro.
      */
-    public void enriquecerDespesas(List<Despesa> despesas) {
-        System.out.println("   Cruzando dados (Join em memória)...");
+    public int enriquecerDespesas(List<Despesa> despesas, ValidadorDespesas validador) throws IOException {
         int semMatch = 0;
 
+        // Resultado da validação de CNPJ por operadora: calculado uma vez, não por despesa
+        Map<String, Boolean> cnpjValidoPorRegistro = new HashMap<>();
+        List<Despesa> rejeitadas = new ArrayList<>();
+
         for (Despesa d : despesas) {
             // Busca no mapa pelo Registro ANS
             Operadora op = cacheOperadoras.get(d.getRegistroAns());
 
             if (op != null) {
+                boolean cnpjValido = cnpjValidoPorRegistro.computeIfAbsent(op.getRegistroAns(),
+                        k -> ValidadorDespesas.cnpjValido(op.getCnpj()));
+                if (!cnpjValido) {
+                    validador.desfazerAceite();
+                    validador.rejeitar(MotivoRejeicao.CNPJ_INVALIDO, d.getArquivoOrigem(), d.getLinhaOrigem(),
+                            d.getRegistroAns(), d.getConta(), d.getValor().toPlainString(), op.getCnpj());
+                    rejeitadas.add(d);
+                    continue;
+                }
+
                 d.setRazaoSocial(op.getRazaoSocial());
-                // Setar no objeto
-                d.setRegistroAns(op.getCnpj());
+                d.setCnpj(op.getCnpj());
+                d.setModalidade(op.getModalidade());
+                d.setUf(op.getUf());
+                // O registro ANS continua sendo a chave canônica; o CNPJ vai no próprio campo
             } else {
                 semMatch++;
                 d.setRazaoSocial("OPERADORA NÃO ENCONTRADA");
             }
         }
 
-        if (semMatch > 0) {
-            System.err.println("   ALERTA: " + semMatch + " registros não tiveram correspondência no cadastro (Inconsistência identificada).");
+        if (!rejeitadas.isEmpty()) {
+            // Identidade: as despesas não sobrescrevem equals/hashCode
+            Set<Despesa> remover = Collections.newSetFromMap(new IdentityHashMap<>());
+            remover.addAll(rejeitadas);
+            despesas.removeIf(remover::contains);
         }
-
+        return semMatch;
     }
 
 
@@ -0,0 +1,457 @@
+package org.intuitivecare.desafio.service;
+
+import org.intuitivecare.desafio.cubo.CuboDespesas;
+import org.intuitivecare.desafio.cubo.CuboDespesasService;
+import org.intuitivecare.desafio.delta.DeltaDespesasService;
+import org.intuitivecare.desafio.memoria.GovernadorMemoria;
+import org.intuitivecare.desafio.model.Despesa;
+import org.intuitivecare.desafio.validacao.ValidadorDespesas;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fluxo do ETL (download -> parser -> enriquecimento -> CSV -> banco).
+ * Cada trimestre é processado de ponta a ponta como uma tarefa; o {@link GovernadorMemoria} decide
+ * quantas rodam em paralelo e o tamanho dos lotes, e segura novas tarefas quando o orçamento enche.
+ * Usado tanto pela execução única (TestExecutionRunner) quanto pelo modo watch (MonitorAnsService).
+ * O sink de banco (só JDBC) é obtido sob demanda: no perfil batch (lazy) o DataSource só sobe se ele estiver habilitado.
+ */
+@Service
+public class EtlPipelineService {
+
+    private static final Path ARQUIVO_REJEITADOS = Paths.get("rejeitados_despesas.csv");
+    // Limites do batch JDBC ajustado pelo governador de memória
+    private static final int LOTE_MINIMO = 500;
+    private static final int LOTE_MAXIMO = 20_000;
+
+    private final AnsScrapper ansScrapper;
+    private final ExtractScrapper extractScrapper;
+    private final CsvParserService csvParserService;
+    private final CsvWriterService csvWriterService;
+    private final EnrichmentService enrichmentService;
+    private final CuboDespesasService cuboDespesasService;
+    private final DeltaDespesasService deltaDespesasService;
+    private final ObjectProvider<ParticionamentoDespesasService> particionamentoDespesasService;
+    private final ObjectProvider<TabelasConsultaService> tabelasConsultaService;
+    private final boolean sinkBancoHabilitado;
+    private final GovernadorMemoria governador;
+    private final HttpCondicionalService httpCondicionalService;
+    private long bytesCuboPublicado;
+    // Uma execução por vez: a carga inicial, os ciclos do watch e o reprocessamento local compartilham o cache
+    // de operadoras, as tabelas *_carga, o consolidado_despesas.csv e os validadores HTTP pendentes
+    private final ReentrantLock execucao = new ReentrantLock();
+    // Tempo e linhas por etapa da última execução de processar (somados entre os trimestres em paralelo)
+    private final AtomicLongArray nanosPorEtapa = new AtomicLongArray(Etapa.values().length);
+    private final AtomicLongArray linhasPorEtapa = new AtomicLongArray(Etapa.values().length);
+
+    /** Etapas medidas dentro de cada trimestre (ver {@link #getTempoEtapaMs}). */
+    public enum Etapa {
+        PARSER, ESPERA_MEMORIA, ENRIQUECIMENTO, CSV, CUBO, DELTA, BANCO
+    }
+
+    /** Trabalho que precisa do pipeline com exclusividade (ex: um ciclo do watch). */
+    public interface TarefaExclusiva {
+        void executar() throws Exception;
+    }
+
+    public EtlPipelineService(AnsScrapper ansScrapper,
+                              ExtractScrapper extractScrapper,
+                              CsvParserService csvParserService,
+                              CsvWriterService csvWriterService,
+                              EnrichmentService enrichmentService,
+                              CuboDespesasService cuboDespesasService,
+                              DeltaDespesasService deltaDespesasService,
+                              ObjectProvider<ParticionamentoDespesasService> particionamentoDespesasService,
+                              ObjectProvider<TabelasConsultaService> tabelasConsultaService,
+                              @Value("${etl.sink.banco.enabled:true}") boolean sinkBancoHabilitado,
+                              GovernadorMemoria governador,
+                              HttpCondicionalService httpCondicionalService) {
+        this.ansScrapper = ansScrapper;
+        this.extractScrapper = extractScrapper;
+        this.csvParserService = csvParserService;
+        this.csvWriterService = csvWriterService;
+        this.enrichmentService = enrichmentService;
+        this.cuboDespesasService = cuboDespesasService;
+        this.deltaDespesasService = deltaDespesasService;
+        this.particionamentoDespesasService = particionamentoDespesasService;
+        this.tabelasConsultaService = tabelasConsultaService;
+        this.sinkBancoHabilitado = sinkBancoHabilitado;
+        this.governador = governador;
+        this.httpCondicionalService = httpCondicionalService;
+    }
+
+    /**
+     * Força a criação dos sinks habilitados (DataSource/JDBC e a tabela particionada) sem rodar o ETL.
+     * Usado para medir o custo de inicialização de cada modo.
+     * @return tempo gasto em milissegundos.
+     */
+    public long inicializarSinks() {
+        long inicio = System.nanoTime();
+        if (sinkBancoHabilitado) {
+            // Primeiro passo do sink numa execução real (idempotente): abre o pool e valida o esquema
+            particionamentoDespesasService.getObject().garantirTabelaParticionada();
+            tabelasConsultaService.getObject();
+        }
+        return (System.nanoTime() - inicio) / 1_000_000;
+    }
+
+    /**
+     * Roda a tarefa com o pipeline travado. Se já houver uma execução em andamento, não espera:
+     * devolve false sem rodar (o watch tenta de novo no próximo ciclo).
+     */
+    public boolean executarSeLivre(TarefaExclusiva tarefa) throws Exception {
+        if (!execucao.tryLock()) {
+            return false;
+        }
+        try {
+            tarefa.executar();
+            return true;
+        } finally {
+            execucao.unlock();
+        }
+    }
+
+    /**
+     * Execução completa: recarrega no banco todos os trimestres encontrados.
+     */
+    public void executarCompleto() throws Exception {
+        execucao.lock();
+        try {
+            executarCompletoTravado();
+        } finally {
+            execucao.unlock();
+        }
+    }
+
+    private void executarCompletoTravado() throws Exception {
+        try {
+            List<ExtractScrapper.ZipBaixado> zips = buscarEBaixar();
+            if (zips == null) {
+                httpCondicionalService.descartarPendentes();
+                return;
+            }
+
+            // --- Carregando o cache de operadoras (Crucial fazer antes do loop principal) ---
+            enrichmentService.baixarECarregarOperadoras();
+
+            processar(zips, true);
+        } catch (Exception e) {
+            httpCondicionalService.descartarPendentes();
+            throw e;
+        }
+        httpCondicionalService.confirmarPendentes();
+    }
+
+    /**
+     * Execução incremental (modo watch): só recarrega no banco os trimestres cujo ZIP mudou.
+     * Se o CADOP mudou, todos os trimestres são recarregados, pois o enriquecimento muda.
+     * Os validadores HTTP (ETag/Last-Modified/hash) só são gravados depois que a carga termina;
+     * se ela falhar, o próximo ciclo do watch enxerga os mesmos ZIPs como alterados e tenta de novo.
+     */
+    public void executarIncremental(boolean operadorasAlteradas) throws Exception {
+        execucao.lock();
+        try {
+            executarIncrementalTravado(operadorasAlteradas);
+        } finally {
+            execucao.unlock();
+        }
+    }
+
+    private void executarIncrementalTravado(boolean operadorasAlteradas) throws Exception {
+        try {
+            List<ExtractScrapper.ZipBaixado> zips = buscarEBaixar();
+            if (zips == null) {
+                httpCondicionalService.descartarPendentes();
+                return;
+            }
+
+            boolean algumZipAlterado = zips.stream().anyMatch(ExtractScrapper.ZipBaixado::isAlterado);
+            if (!algumZipAlterado && !operadorasAlteradas) {
+                System.out.println(">>> Nenhum trimestre novo ou alterado. Nada a processar.");
+            } else {
+                processar(zips, operadorasAlteradas);
+            }
+        } catch (Exception e) {
+            httpCondicionalService.descartarPendentes();
+            throw e;
+        }
+        httpCondicionalService.confirmarPendentes();
+    }
+
+    /**
+     * Reprocessa ZIPs e CADOP já em disco, sem acessar a ANS (reprocessamento offline e macro-benchmark).
+     * Mesmo fluxo da execução completa: todos os trimestres são recarregados.
+     */
+    public void executarArquivosLocais(List<File> arquivosZip, File cadop) throws Exception {
+        execucao.lock();
+        try {
+            List<ExtractScrapper.ZipBaixado> zips = new ArrayList<>();
+            for (File arquivoZip : arquivosZip) {
+                zips.add(extractScrapper.extrairLocal(arquivoZip));
+            }
+            enrichmentService.carregarOperadoras(cadop);
+
+            processar(zips, true);
+        } finally {
+            execucao.unlock();
+        }
+    }
+
+    private List<ExtractScrapper.ZipBaixado> buscarEBaixar() throws Exception {
+        // --- ETAPA 1: Identificar Links ---
+        System.out.println("--- [1.1] Buscando links na ANS ---");
+        List<String> links = ansScrapper.buscarLinksUltimos3Trimestres();
+
+        if (links.isEmpty()) {
+            System.err.println("Nenhum link encontrado. Abortando.");
+            return null;
+        }
+
+        // --- ETAPA 2: Baixar e Extrair ---
+        System.out.println("--- [1.2] Baixando e Extraindo Arquivos ---");
+        List<ExtractScrapper.ZipBaixado> zips = extractScrapper.baixarEExtrair(links);
+        System.out.println("ZIPs prontos para processamento: " + zips.size());
+        return zips;
+    }
+
+    private void processar(List<ExtractScrapper.ZipBaixado> zips, boolean recarregarTodos) throws Exception {
+        System.out.println("--- [1.2 & 2.2] Processando e Enriquecendo Despesas ---");
+        for (int i = 0; i < nanosPorEtapa.length(); i++) {
+            nanosPorEtapa.set(i, 0);
+            linhasPorEtapa.set(i, 0);
+        }
+        System.out.println("   Memória: " + governador.resumo());
+
+        // O cache de operadoras vive a execução toda: entra no orçamento como memória fixa
+        long bytesOperadoras = enrichmentService.getCacheOperadoras().size() * GovernadorMemoria.BYTES_POR_OPERADORA;
+        governador.ajustarFixo(bytesOperadoras);
+
+        ParticionamentoDespesasService particionamento = null;
+        if (sinkBancoHabilitado) {
+            System.out.println("--- [3.3] Salvando no Banco de Dados (PostgreSQL) ---");
+            // 1. Salvar Operadoras
+            if (recarregarTodos && !enrichmentService.getCacheOperadoras().isEmpty()) {
+                tabelasConsultaService.getObject().recarregarOperadoras(enrichmentService.getCacheOperadoras().values());
+            }
+            particionamento = particionamentoDespesasService.getObject();
+            particionamento.garantirTabelaParticionada();
+        } else {
+            System.out.println(">>> Sink de banco desabilitado (etl.sink.banco.enabled=false). Só CSV e cubo.");
+        }
+
+        // Parser e enriquecimento andam em lotes: uma tarefa (um ZIP) só segura um lote de despesas por vez,
+        // mas o cubo e as impressões do delta crescem com cada linha do trimestre. O paralelismo sai do maior trimestre.
+        int tamanhoLote = governador.tamanhoLote(GovernadorMemoria.BYTES_POR_DESPESA, LOTE_MINIMO, LOTE_MAXIMO);
+        long maiorCsv = 0;
+        for (ExtractScrapper.ZipBaixado zip : zips) {
+            long bytesCsv = 0;
+            for (File arquivo : zip.getArquivos()) {
+                bytesCsv += arquivo.length();
+            }
+            maiorCsv = Math.max(maiorCsv, bytesCsv);
+        }
+        long bytesPorTarefa = GovernadorMemoria.bytesPorTarefa(maiorCsv, tamanhoLote, deltaDespesasService.isHabilitado());
+        int paralelismo = governador.paralelismo(bytesPorTarefa, zips.size());
+        System.out.println("   Processando " + zips.size() + " trimestre(s) com paralelismo " + paralelismo
+                + " (~" + bytesPorTarefa / (1024 * 1024) + " MB por trimestre) e lotes de " + tamanhoLote + " despesas.");
+
+        CuboDespesas.Construtor construtorCubo = CuboDespesas.construtor();
+        // Linhas do cubo novo já contabilizadas no governador: devolvidas se a execução falhar antes da publicação
+        AtomicLong bytesCubo = new AtomicLong();
+        boolean cuboPublicado = false;
+        ExecutorService executor = Executors.newFixedThreadPool(paralelismo);
+
+        try {
+            try (ValidadorDespesas validador = new ValidadorDespesas(ARQUIVO_REJEITADOS);
+                 CsvWriterService.EscritorConsolidado escritor = csvWriterService.abrirConsolidado();
+                 DeltaDespesasService.EscritorDelta delta = deltaDespesasService.isHabilitado()
+                         ? deltaDespesasService.abrir() : null) {
+
+                List<Future<?>> tarefas = new ArrayList<>();
+                for (ExtractScrapper.ZipBaixado zip : zips) {
+                    boolean carregarNoBanco = particionamento != null && (recarregarTodos || zip.isAlterado());
+                    ParticionamentoDespesasService sink = particionamento;
+                    tarefas.add(executor.submit(() -> {
+                        processarZip(zip, tamanhoLote, validador, escritor, delta, construtorCubo, bytesCubo,
+                                carregarNoBanco ? sink : null);
+                        return null;
+                    }));
+                }
+
+                try {
+                    for (Future<?> tarefa : tarefas) {
+                        tarefa.get();
+                    }
+                } catch (ExecutionException e) {
+                    // Interrompe as tarefas que aguardam orçamento antes de fechar CSV e rejeitados
+                    executor.shutdownNow();
+                    executor.awaitTermination(1, TimeUnit.MINUTES);
+                    if (e.getCause() instanceof Exception causa) throw causa;
+                    throw e;
+                }
+
+                System.out.println("Total de despesas gravadas no CSV: " + escritor.getRegistros());
+                if (delta != null) {
+                    delta.concluir();
+                }
+                validador.imprimirRelatorio();
+                System.out.println("   Rejeitados gravados em: " + ARQUIVO_REJEITADOS.toAbsolutePath());
+            } finally {
+                executor.shutdown();
+                governador.ajustarFixo(-bytesOperadoras);
+            }
+
+            System.out.println(">>> TESTES 1 e 2 (CSV) CONCLUÍDOS! <<<");
+
+            // Tabelas de leitura da API: reconstruídas depois que todos os trimestres foram trocados
+            if (particionamento != null) {
+                tabelasConsultaService.getObject().publicar();
+            }
+
+            // Cubo em memória para consultas analíticas (UF, modalidade, período, grupo de conta, operadora)
+            cuboDespesasService.publicar(construtorCubo.construir());
+            cuboPublicado = true;
+            // As linhas do cubo novo já foram contabilizadas pelas tarefas; o anterior é descartado na troca
+            governador.ajustarFixo(-bytesCuboPublicado);
+            bytesCuboPublicado = bytesCubo.get();
+        } finally {
+            if (!cuboPublicado) {
+                governador.ajustarFixo(-bytesCubo.get());
+            }
+        }
+
+        System.out.println(">>> FLUXO COMPLETO FINALIZADO COM SUCESSO! <<<");
+    }
+
+    /**
+     * Parser, enriquecimento, CSV, cubo e banco de um ZIP (um trimestre), executado em paralelo com os demais.
+     * O arquivo é lido em lotes de tamanhoLote: cada lote reserva sua memória no governador (segurando o parser
+     * enquanto o orçamento estiver cheio), passa por todas as etapas e é liberado antes do próximo.
+     * O que precisa do trimestre inteiro (troca da partição, comparação do delta) é concluído no fim.
+     */
+    private void processarZip(ExtractScrapper.ZipBaixado zip, int tamanhoLote, ValidadorDespesas validador,
+                              CsvWriterService.EscritorConsolidado escritor, DeltaDespesasService.EscritorDelta delta,
+                              CuboDespesas.Construtor construtorCubo, AtomicLong bytesCubo,
+                              ParticionamentoDespesasService particionamento) throws Exception {
+        Map<Integer, ParticionamentoDespesasService.CargaTrimestre> cargas = new TreeMap<>();
+        Map<Integer, DeltaDespesasService.ComparacaoTrimestre> comparacoes = new TreeMap<>();
+        long[] bytesDelta = new long[1];
+        long[] semMatch = new long[1];
+
+        try (ValidadorDespesas escopo = validador.novoEscopo()) {
+            long lidas = 0;
+            for (File arquivo : zip.getArquivos()) {
+                // --- ETAPA 3: Parser + Validação (lote a lote) ---
+                // O parser chama o consumidor no meio da leitura: o tempo dos lotes sai do tempo do parser
+                long[] nanosLotes = new long[1];
+                long inicioParser = System.nanoTime();
+                long lidasArquivo = csvParserService.parse(arquivo, escopo, tamanhoLote, despesas -> {
+                    long inicioLote = System.nanoTime();
+                    long bytesLote = despesas.size() * GovernadorMemoria.BYTES_POR_DESPESA;
+                    governador.reservar(bytesLote);
+                    long t = medir(Etapa.ESPERA_MEMORIA, inicioLote, 0);
+                    try {
+                        //  --- Etapa 4: Enriquecimento (Aplicando Join em memória) ---
+                        int recebidas = despesas.size();
+                        semMatch[0] += enrichmentService.enriquecerDespesas(despesas, escopo);
+                        t = medir(Etapa.ENRIQUECIMENTO, t, recebidas);
+                        if (despesas.isEmpty()) return;
+
+                        //  --- Etapa 5: CSV Consolidado (já com CNPJ e Razão Social preenchidos) ---
+                        escritor.escrever(despesas);
+                        t = medir(Etapa.CSV, t, despesas.size());
+
+                        synchronized (construtorCubo) {
+                            construtorCubo.adicionarTodas(despesas);
+                        }
+                        long bytesLinhasCubo = despesas.size() * GovernadorMemoria.BYTES_POR_LINHA_CUBO;
+                        governador.ajustarFixo(bytesLinhasCubo);
+                        bytesCubo.addAndGet(bytesLinhasCubo);
+                        t = medir(Etapa.CUBO, t, despesas.size());
+
+                        // O lote vem de um único arquivo: um único ano/trimestre
+                        int ano = despesas.get(0).getAno();
+                        int trimestre = despesas.get(0).getTrimestre();
+                        int chave = ano * 10 + trimestre;
+
+                        // Delta para consumidores: guarda só as impressões até o trimestre terminar
+                        if (delta != null) {
+                            comparacoes.computeIfAbsent(chave, k -> deltaDespesasService.novaComparacao(ano, trimestre))
+                                    .adicionar(despesas);
+                            long bytesImpressoes = despesas.size() * GovernadorMemoria.BYTES_POR_IMPRESSAO_DELTA;
+                            governador.ajustarFixo(bytesImpressoes);
+                            bytesDelta[0] += bytesImpressoes;
+                            t = medir(Etapa.DELTA, t, despesas.size());
+                        }
+
+                        // --- ETAPA 6: Persistência (staging do trimestre, lote a lote) ---
+                        if (particionamento != null) {
+                            cargas.computeIfAbsent(chave, k -> particionamento.abrirCarga(ano, trimestre))
+                                    .inserir(despesas, tamanhoLote);
+                            medir(Etapa.BANCO, t, despesas.size());
+                        }
+                    } finally {
+                        governador.liberar(bytesLote);
+                        nanosLotes[0] += System.nanoTime() - inicioLote;
+                    }
+                });
+                medir(Etapa.PARSER, inicioParser + nanosLotes[0], lidasArquivo);
+                lidas += lidasArquivo;
+            }
+            System.out.println("   Despesas lidas de " + zip.getUrl() + ": " + lidas);
+            if (semMatch[0] > 0) {
+                System.err.println("   ALERTA: " + semMatch[0] + " registros não tiveram correspondência no cadastro (Inconsistência identificada).");
+            }
+
+            // Delta: linhas inseridas/alteradas/removidas desde a última execução
+            long t = System.nanoTime();
+            for (DeltaDespesasService.ComparacaoTrimestre comparacao : comparacoes.values()) {
+                comparacao.comparar(delta);
+            }
+            t = medir(Etapa.DELTA, t, 0);
+
+            // Uma partição por trimestre, trocada atomicamente
+            for (ParticionamentoDespesasService.CargaTrimestre carga : cargas.values()) {
+                carga.publicar();
+            }
+            medir(Etapa.BANCO, t, 0);
+        } finally {
+            governador.ajustarFixo(-bytesDelta[0]);
+        }
+    }
+
+    /** Soma o tempo desde inicio (e as linhas) na etapa; devolve o instante atual para encadear a próxima. */
+    private long medir(Etapa etapa, long inicio, long linhas) {
+        long agora = System.nanoTime();
+        nanosPorEtapa.addAndGet(etapa.ordinal(), agora - inicio);
+        linhasPorEtapa.addAndGet(etapa.ordinal(), linhas);
+        return agora;
+    }
+
+    /**
+     * Tempo gasto na etapa durante a última execução. Com trimestres em paralelo é a soma das tarefas,
+     * então pode passar do tempo total do ETL.
+     */
+    public long getTempoEtapaMs(Etapa etapa) {
+        return nanosPorEtapa.get(etapa.ordinal()) / 1_000_000;
+    }
+
+    /** Linhas que passaram pela etapa na última execução (despesas lidas no parser, enviadas nas demais). */
+    public long getLinhasEtapa(Etapa etapa) {
+        return linhasPorEtapa.get(etapa.ordinal());
+    }
+}
@@ -6,10 +6,11 @@ import org.jsoup.select.Elements;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
-import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 @Service
@@ -18,19 +19,23 @@ public class ExtractScrapper {
     private static final String DOWNLOAD_DIR = "dados_downloads";
     private static final String EXTRACT_DIR = "dados_extraidos";
 
-    public ExtractScrapper() {
+    private final HttpCondicionalService httpCondicionalService;
+
+    public ExtractScrapper(HttpCondicionalService httpCondicionalService) {
+        this.httpCondicionalService = httpCondicionalService;
         // Garante que os diretórios de trabalho existam
         criarDiretorios(DOWNLOAD_DIR);
         criarDiretorios(EXTRACT_DIR);
     }
 
     /**
-     * Orquestra o download e extração dos arquivos a partir das URLs.
+     * Orquestra o download e extração dos arquivos a partir das URLs, informando por ZIP se o conteúdo mudou.
+     * ZIPs inalterados (304 ou mesmo SHA-256) não são baixados nem extraídos de novo.
      * @param urlsDiretorios Lista de URLs identificadas pelo Scraper
-     * @return Lista de arquivos extraídos prontos para o parser.
+     * @return ZIPs com os arquivos extraídos prontos para o parser.
      */
-    public List<File> baixarEExtrairArquivos(List<String> urlsDiretorios) {
-        List<File> arquivosRelevantes = new ArrayList<>();
+    public List<ZipBaixado> baixarEExtrair(List<String> urlsDiretorios) {
+        List<ZipBaixado> resultado = new ArrayList<>();
 
         for (String url : urlsDiretorios) {
             try {
@@ -51,16 +56,29 @@ public class ExtractScrapper {
                     continue;
                 }
 
-                File arquivoZip = downloadFile(urlZip);
-                List<File> extraidos = extrairArquivosRelevantes(arquivoZip);
-                arquivosRelevantes.addAll(extraidos);
+                File arquivoZip = new File(DOWNLOAD_DIR, urlZip.substring(urlZip.lastIndexOf("/") + 1));
+                boolean alterado = downloadFile(urlZip, arquivoZip);
+
+                List<File> extraidos = alterado ? extrairArquivosRelevantes(arquivoZip) : listarJaExtraidos(arquivoZip);
+                if (!alterado && extraidos == null) {
+                    // ZIP em cache, mas a extração anterior foi apagada
+                    extraidos = extrairArquivosRelevantes(arquivoZip);
+                }
+                resultado.add(new ZipBaixado(urlZip, alterado, extraidos));
 
             } catch (Exception e) {
                 System.err.println("Erro ao processar URL " + url + ": " + e.getMessage());
                 e.printStackTrace(); // Importante para debug em ambiente de teste
             }
         }
-        return arquivosRelevantes;
+        return resultado;
+    }
+
+    /**
+     * Extrai um ZIP já em disco, sem download (reprocessamento offline).
+     */
+    public ZipBaixado extrairLocal(File arquivoZip) throws IOException {
+        return new ZipBaixado(arquivoZip.getAbsolutePath(), true, extrairArquivosRelevantes(arquivoZip));
     }
 
     private String encontrarLinkZip(String urlDir) throws IOException {
@@ -80,24 +98,35 @@ public class ExtractScrapper {
         return null;
     }
 
-    private File downloadFile(String urlString) throws IOException {
-        String nomeArquivo = urlString.substring(urlString.lastIndexOf("/") + 1);
-        File destino = new File(DOWNLOAD_DIR, nomeArquivo);
-
-        System.out.println("   Baixando: " + nomeArquivo + "...");
+    private boolean downloadFile(String urlString, File destino) throws IOException {
+        System.out.println("   Baixando: " + destino.getName() + "...");
 
-        // Utiliza BufferedInputStream para evitar carregar o arquivo inteiro em memória (Heap Space)
-        try (BufferedInputStream in = new BufferedInputStream(new URL(urlString).openStream());
-             FileOutputStream fileOutputStream = new FileOutputStream(destino)) {
+        // GET condicional: se a ANS não republicou o arquivo, nada é transferido
+        boolean alterado = httpCondicionalService.baixarSeAlterado(urlString, destino);
+        if (alterado) {
+            System.out.println("   Download concluído: " + destino.getAbsolutePath());
+        } else {
+            System.out.println("   Sem alterações desde o último download (cache): " + destino.getName());
+        }
+        return alterado;
+    }
 
-            byte[] dataBuffer = new byte[1024];
-            int bytesRead;
-            while ((bytesRead = in.read(dataBuffer, 0, 1024)) != -1) {
-                fileOutputStream.write(dataBuffer, 0, bytesRead);
+    /**
+     * Lista os arquivos de interesse já extraídos de um ZIP em cache (lendo só o diretório central do ZIP).
+     * @return null se algum deles não estiver mais em disco.
+     */
+    private List<File> listarJaExtraidos(File arquivoZip) throws IOException {
+        List<File> arquivos = new ArrayList<>();
+        try (ZipFile zip = new ZipFile(arquivoZip)) {
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                if (isArquivoInteresse(entry.getName().toLowerCase())) {
+                    File extraido = new File(EXTRACT_DIR, entry.getName());
+                    if (!extraido.exists()) return null;
+                    arquivos.add(extraido);
+                }
             }
         }
-        System.out.println("   Download concluído: " + destino.getAbsolutePath());
-        return destino;
+        return arquivos;
     }
 
     private List<File> extrairArquivosRelevantes(File arquivoZip) throws IOException {
@@ -154,4 +183,23 @@ public class ExtractScrapper {
             dir.mkdirs();
         }
     }
+
+    /**
+     * Resultado do download de um ZIP: arquivos extraídos e se o conteúdo mudou desde a última execução.
+     */
+    public static class ZipBaixado {
+        private final String url;
+        private final boolean alterado;
+        private final List<File> arquivos;
+
+        public ZipBaixado(String url, boolean alterado, List<File> arquivos) {
+            this.url = url;
+            this.alterado = alterado;
+            this.arquivos = arquivos;
+        }
+
+        public String getUrl() { return url; }
+        public boolean isAlterado() { return alterado; }
+        public List<File> getArquivos() { return arquivos; }
+    }
 }
\ No newline at end of file
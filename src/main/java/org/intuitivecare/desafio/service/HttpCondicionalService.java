@@ -0,0 +1,172 @@
+package org.intuitivecare.desafio.service;
+
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Properties;
+
+/**
+ * Requisições HTTP condicionais (ETag / If-Modified-Since) com cache persistente em disco.
+ * Além dos validadores HTTP, guarda o SHA-256 do conteúdo: servidores que não mandam ETag
+ * (ex: listagens de diretório) ainda são detectados como "sem alteração".
+ * <p>
+ * Os validadores de uma resposta nova ficam pendentes até {@link #confirmarPendentes()}, chamado quando
+ * o ETL termina com sucesso. Se o ETL falhar, {@link #descartarPendentes()} mantém os validadores antigos
+ * e a próxima consulta enxerga a mudança de novo, em vez de um 304 para dados que nunca foram carregados.
+ */
+@Service
+public class HttpCondicionalService {
+
+    private static final Path ARQUIVO_CACHE = Paths.get("dados_downloads", ".cache_http.properties");
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private final Properties cache = new Properties();      // confirmado: usado nas requisições
+    private final Properties pendentes = new Properties();  // respostas novas ainda não processadas
+
+    public HttpCondicionalService() {
+        if (Files.exists(ARQUIVO_CACHE)) {
+            try (Reader reader = Files.newBufferedReader(ARQUIVO_CACHE, StandardCharsets.UTF_8)) {
+                cache.load(reader);
+            } catch (IOException e) {
+                System.err.println("Cache HTTP ilegível, será recriado: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Baixa a URL para o destino apenas se o conteúdo mudou desde a última chamada.
+     * @return true se o arquivo de destino foi atualizado com conteúdo novo.
+     */
+    public synchronized boolean baixarSeAlterado(String url, File destino) throws IOException {
+        HttpResponse<InputStream> resposta = enviar(url, destino.exists());
+        if (resposta.statusCode() == 304) {
+            resposta.body().close();
+            return false;
+        }
+
+        File parcial = new File(destino.getPath() + ".parcial");
+        MessageDigest sha = novoDigest();
+        try (InputStream in = new DigestInputStream(resposta.body(), sha);
+             OutputStream out = new BufferedOutputStream(new FileOutputStream(parcial))) {
+            in.transferTo(out);
+        }
+
+        String hash = HexFormat.of().formatHex(sha.digest());
+        boolean alterado = !destino.exists() || !hash.equals(cache.getProperty("sha256." + url));
+        if (alterado) {
+            Files.move(parcial.toPath(), destino.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            // Servidor respondeu 200, mas o conteúdo é o mesmo já processado
+            Files.delete(parcial.toPath());
+        }
+        registrarPendente(url, resposta, hash);
+        return alterado;
+    }
+
+    /**
+     * Busca uma página (ex: listagem de diretório) e diz se ela mudou desde a última chamada.
+     * Custa uma única requisição; com 304 nem o corpo é transferido.
+     */
+    public synchronized boolean paginaAlterada(String url) throws IOException {
+        HttpResponse<InputStream> resposta = enviar(url, true);
+        if (resposta.statusCode() == 304) {
+            resposta.body().close();
+            return false;
+        }
+
+        MessageDigest sha = novoDigest();
+        try (InputStream in = new DigestInputStream(resposta.body(), sha)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+
+        String hash = HexFormat.of().formatHex(sha.digest());
+        boolean alterada = !hash.equals(cache.getProperty("sha256." + url));
+        registrarPendente(url, resposta, hash);
+        return alterada;
+    }
+
+    private HttpResponse<InputStream> enviar(String url, boolean condicional) throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMinutes(10))
+                .GET();
+
+        if (condicional) {
+            String etag = cache.getProperty("etag." + url);
+            String ultimaModificacao = cache.getProperty("lm." + url);
+            if (etag != null) builder.header("If-None-Match", etag);
+            if (ultimaModificacao != null) builder.header("If-Modified-Since", ultimaModificacao);
+        }
+
+        HttpResponse<InputStream> resposta;
+        try {
+            resposta = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Requisição interrompida: " + url, e);
+        }
+
+        int status = resposta.statusCode();
+        if (status != 200 && status != 304) {
+            resposta.body().close();
+            throw new IOException("HTTP " + status + " ao acessar " + url);
+        }
+
+        return resposta;
+    }
+
+    /**
+     * Grava no cache os validadores das respostas recebidas desde a última confirmação.
+     * Chamar só depois que o conteúdo novo foi processado (ex: carga concluída).
+     */
+    public synchronized void confirmarPendentes() throws IOException {
+        if (pendentes.isEmpty()) return;
+        cache.putAll(pendentes);
+        pendentes.clear();
+        salvarCache();
+    }
+
+    /** Esquece as respostas não processadas: a próxima consulta compara de novo com o último estado confirmado. */
+    public synchronized void descartarPendentes() {
+        pendentes.clear();
+    }
+
+    // Só chamado após o corpo ser lido por completo, para um download interrompido não virar "304" depois
+    private void registrarPendente(String url, HttpResponse<?> resposta, String hash) {
+        resposta.headers().firstValue("ETag").ifPresent(v -> pendentes.setProperty("etag." + url, v));
+        resposta.headers().firstValue("Last-Modified").ifPresent(v -> pendentes.setProperty("lm." + url, v));
+        pendentes.setProperty("sha256." + url, hash);
+    }
+
+    private void salvarCache() throws IOException {
+        Files.createDirectories(ARQUIVO_CACHE.getParent());
+        try (Writer writer = Files.newBufferedWriter(ARQUIVO_CACHE, StandardCharsets.UTF_8)) {
+            cache.store(writer, "Validadores HTTP e hashes de conteudo do ETL");
+        }
+    }
+
+    private MessageDigest novoDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível na JVM", e);
+        }
+    }
+}
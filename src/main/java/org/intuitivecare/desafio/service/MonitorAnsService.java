@@ -0,0 +1,79 @@
+package org.intuitivecare.desafio.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Modo watch: consulta periodicamente a ANS com GETs condicionais e só dispara o ETL
+ * quando há trimestre novo/alterado ou um CADOP novo.
+ * Uma consulta ociosa custa uma requisição condicional por recurso observado
+ * (listagem de demonstrações, pastas de ano/trimestre observadas + CADOP).
+ * Os validadores HTTP só são gravados quando o ETL termina: se ele falhar, a próxima consulta
+ * detecta a mesma novidade e tenta de novo.
+ * O agendador sobe junto com o contexto, antes da carga inicial do TestExecutionRunner: enquanto uma
+ * execução estiver em andamento, o ciclo é pulado em vez de rodar em paralelo com ela.
+ */
+@Service
+@Lazy(false) // No perfil batch (lazy) o bean precisa existir para o @Scheduled ser registrado
+@ConditionalOnProperty(name = "etl.watch.enabled", havingValue = "true")
+public class MonitorAnsService {
+
+    private final AnsScrapper ansScrapper;
+    private final HttpCondicionalService httpCondicionalService;
+    private final EnrichmentService enrichmentService;
+    private final EtlPipelineService etlPipelineService;
+
+    public MonitorAnsService(AnsScrapper ansScrapper,
+                             HttpCondicionalService httpCondicionalService,
+                             EnrichmentService enrichmentService,
+                             EtlPipelineService etlPipelineService) {
+        this.ansScrapper = ansScrapper;
+        this.httpCondicionalService = httpCondicionalService;
+        this.enrichmentService = enrichmentService;
+        this.etlPipelineService = etlPipelineService;
+    }
+
+    @Scheduled(fixedDelayString = "${etl.watch.intervalo-ms:300000}",
+            initialDelayString = "${etl.watch.intervalo-ms:300000}")
+    public void verificarNovidades() {
+        try {
+            if (!etlPipelineService.executarSeLivre(this::verificarTravado)) {
+                System.out.println(">>> [watch] ETL em andamento. Verificação adiada para o próximo ciclo.");
+            }
+        } catch (Exception e) {
+            // Não derruba o agendador: tenta de novo no próximo ciclo, com os validadores anteriores
+            System.err.println(">>> [watch] Erro na verificação: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // Roda com o pipeline travado: atualizarOperadorasSeAlterado troca o cache que as tarefas do ETL leem
+    private void verificarTravado() throws Exception {
+        try {
+            // A listagem raiz pega um ano novo; as pastas de ano/trimestre pegam ZIPs novos ou republicados
+            // dentro dos anos observados. Todas são consultadas (sem curto-circuito) para ficarem no cache.
+            boolean listagemAlterada = false;
+            for (String url : ansScrapper.urlsMonitoradas()) {
+                listagemAlterada |= httpCondicionalService.paginaAlterada(url);
+            }
+            boolean operadorasAlteradas = enrichmentService.atualizarOperadorasSeAlterado();
+
+            if (!listagemAlterada && !operadorasAlteradas) {
+                System.out.println(">>> [watch] Sem novidades na ANS.");
+                httpCondicionalService.confirmarPendentes();
+                return;
+            }
+
+            System.out.println(">>> [watch] Novidades detectadas (listagem=" + listagemAlterada
+                    + ", cadop=" + operadorasAlteradas + "). Iniciando ETL incremental...");
+            // Confirma ou descarta os validadores pendentes (inclusive os das listagens acima)
+            etlPipelineService.executarIncremental(operadorasAlteradas);
+        } catch (Exception e) {
+            // Descarta ainda com o pipeline travado: os pendentes são só deste ciclo
+            httpCondicionalService.descartarPendentes();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package org.intuitivecare.desafio.service;
+
+import org.intuitivecare.desafio.model.Despesa;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Mantém a tabela 'despesas' particionada por (ano, trimestre) no PostgreSQL.
+ * Cada trimestre é carregado numa tabela de staging desanexada, indexado lá e
+ * depois trocado pela partição antiga com ATTACH PARTITION numa única transação.
+ */
+@Service
+public class ParticionamentoDespesasService {
+
+    private static final String SQL_INSERT = "INSERT INTO %s " +
+            "(registro_ans, razao_social, descricao, conta, data, valor, ano, trimestre, cnpj, modalidade, uf) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public ParticionamentoDespesasService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Cria a tabela pai particionada se ainda não existir.
+     * Uma tabela 'despesas' comum (criada pelo Hibernate em versões anteriores) é renomeada para 'despesas_legado'.
+     */
+    public void garantirTabelaParticionada() {
+        // Subconsulta escalar: devolve uma linha com null quando 'despesas' ainda não existe (banco novo)
+        String tipo = jdbcTemplate.queryForObject(
+                "SELECT (SELECT c.relkind::text FROM pg_class c WHERE c.oid = to_regclass('despesas'))", String.class);
+
+        if ("r".equals(tipo)) {
+            System.out.println("   Tabela 'despesas' não particionada encontrada. Renomeando para 'despesas_legado'.");
+            jdbcTemplate.execute("ALTER TABLE despesas RENAME TO despesas_legado");
+        }
+        renomearIndicesLegado();
+
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS despesas (" +
+                "registro_ans VARCHAR(20), " +
+                "razao_social VARCHAR(255), " +
+                "descricao VARCHAR(255), " +
+                "conta VARCHAR(20), " +
+                "data DATE, " +
+                "valor NUMERIC(15,2), " +
+                "ano INT NOT NULL, " +
+                "trimestre INT NOT NULL, " +
+                "cnpj VARCHAR(20), " +
+                "modalidade VARCHAR(100), " +
+                "uf CHAR(2)" +
+                ") PARTITION BY RANGE (ano, trimestre)");
+
+        // Tabelas criadas antes da coluna 'conta' (propaga para todas as partições)
+        jdbcTemplate.execute("ALTER TABLE despesas ADD COLUMN IF NOT EXISTS conta VARCHAR(20)");
+
+        // Índice particionado: cada partição precisa ter um índice equivalente antes do ATTACH
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_despesas_operadora ON despesas (registro_ans)");
+    }
+
+    /**
+     * O RENAME da tabela não renomeia os índices: 'idx_despesas_operadora' e 'despesas_pkey' continuariam
+     * ocupando os nomes e o CREATE INDEX IF NOT EXISTS da tabela particionada seria ignorado.
+     * Também corrige bancos já migrados, em que a tabela legado ficou com os nomes antigos.
+     */
+    private void renomearIndicesLegado() {
+        List<String> indices = jdbcTemplate.queryForList(
+                "SELECT i.relname FROM pg_index x JOIN pg_class i ON i.oid = x.indexrelid " +
+                "WHERE x.indrelid = to_regclass('despesas_legado') " +
+                "AND i.relname LIKE '%despesas%' AND i.relname NOT LIKE '%despesas_legado%'", String.class);
+        for (String indice : indices) {
+            String novoNome = indice.replaceFirst("despesas", "despesas_legado");
+            System.out.println("   Renomeando índice legado '" + indice + "' para '" + novoNome + "'.");
+            jdbcTemplate.execute("ALTER INDEX \"" + indice + "\" RENAME TO \"" + novoNome + "\"");
+        }
+    }
+
+    /**
+     * Inicia a carga de um trimestre numa staging vazia. As despesas chegam em lotes por
+     * {@link CargaTrimestre#inserir(List, int)} e a partição só é trocada em {@link CargaTrimestre#publicar()}.
+     */
+    public CargaTrimestre abrirCarga(int ano, int trimestre) {
+        String particao = "despesas_" + ano + "_t" + trimestre;
+        String staging = particao + "_carga";
+
+        // 1. Staging desanexada: a carga não disputa lock nem incha índices da tabela consultada
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + staging);
+        jdbcTemplate.execute("CREATE TABLE " + staging + " (LIKE despesas INCLUDING DEFAULTS)");
+        System.out.println("   Carregando despesas em " + staging + "...");
+
+        return new CargaTrimestre(ano, trimestre, particao, staging);
+    }
+
+    /**
+     * Carga em andamento de um trimestre. Se a execução falhar antes de {@link #publicar()},
+     * a partição publicada continua intacta e a staging é recriada na próxima carga.
+     */
+    public class CargaTrimestre {
+
+        private final int ano;
+        private final int trimestre;
+        private final String particao;
+        private final String staging;
+        private long linhas;
+
+        private CargaTrimestre(int ano, int trimestre, String particao, String staging) {
+            this.ano = ano;
+            this.trimestre = trimestre;
+            this.particao = particao;
+            this.staging = staging;
+        }
+
+        public void inserir(List<Despesa> despesas, int tamanhoLote) {
+            jdbcTemplate.batchUpdate(String.format(SQL_INSERT, staging), despesas, tamanhoLote, (ps, d) -> {
+                ps.setString(1, d.getRegistroAns());
+                ps.setString(2, d.getRazaoSocial());
+                ps.setString(3, d.getDescricao());
+                ps.setString(4, d.getConta());
+                if (d.getData() != null) {
+                    ps.setDate(5, Date.valueOf(d.getData()));
+                } else {
+                    ps.setNull(5, Types.DATE);
+                }
+                ps.setBigDecimal(6, d.getValor());
+                ps.setInt(7, d.getAno());
+                ps.setInt(8, d.getTrimestre());
+                ps.setString(9, d.getCnpj());
+                ps.setString(10, d.getModalidade());
+                ps.setString(11, d.getUf());
+            });
+            linhas += despesas.size();
+        }
+
+        /** Troca a partição do trimestre pela staging. Leitores continuam vendo a partição antiga até o commit. */
+        public void publicar() {
+            // 2. Índices e estatísticas construídos fora da tabela consultada
+            jdbcTemplate.execute("CREATE INDEX " + staging + "_operadora_idx ON " + staging + " (registro_ans)");
+            // A CHECK permite ao ATTACH pular a varredura de validação dos limites da partição
+            jdbcTemplate.execute("ALTER TABLE " + staging + " ADD CONSTRAINT " + staging + "_periodo " +
+                    "CHECK (ano = " + ano + " AND trimestre = " + trimestre + ")");
+            jdbcTemplate.execute("ANALYZE " + staging);
+
+            // 3. Troca atômica: desanexa a partição antiga e anexa a nova na mesma transação
+            transactionTemplate.executeWithoutResult(status -> {
+                Boolean existe = jdbcTemplate.queryForObject(
+                        "SELECT to_regclass(?) IS NOT NULL", Boolean.class, particao);
+                if (Boolean.TRUE.equals(existe)) {
+                    jdbcTemplate.execute("ALTER TABLE despesas DETACH PARTITION " + particao);
+                    jdbcTemplate.execute("DROP TABLE " + particao);
+                }
+                jdbcTemplate.execute("ALTER TABLE " + staging + " RENAME TO " + particao);
+                jdbcTemplate.execute("ALTER INDEX " + staging + "_operadora_idx RENAME TO " + particao + "_operadora_idx");
+                jdbcTemplate.execute("ALTER TABLE despesas ATTACH PARTITION " + particao +
+                        " FOR VALUES FROM (" + ano + ", " + trimestre + ") TO (" + ano + ", " + (trimestre + 1) + ")");
+                jdbcTemplate.execute("ALTER TABLE " + particao + " DROP CONSTRAINT " + staging + "_periodo");
+            });
+
+            System.out.println("   Partição " + particao + " publicada (" + linhas + " despesas).");
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package org.intuitivecare.desafio.service;
+
+import org.intuitivecare.desafio.model.Operadora;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Tabelas de leitura usadas pela API (desnormalizadas, já com razão social e totais).
+ * São reconstruídas após cada carga em tabelas "_novo", indexadas e analisadas fora da tabela consultada,
+ * e publicadas trocando os nomes numa única transação: a API nunca vê uma versão pela metade.
+ * <ul>
+ *   <li>despesas_operadora_trimestre: total e quantidade de despesas por (registro ANS, ano, trimestre).</li>
+ *   <li>operadoras_listagem: uma linha por operadora com CNPJ, razão social, modalidade, UF e total geral.
+ *       Os índices cobrem a listagem ordenada por razão social e as buscas por prefixo (index-only scan).</li>
+ * </ul>
+ */
+@Service
+public class TabelasConsultaService {
+
+    private static final String TRIMESTRE = "despesas_operadora_trimestre";
+    private static final String LISTAGEM = "operadoras_listagem";
+
+    // Sufixos dos índices de cada tabela (o nome final é tabela + sufixo)
+    private static final List<String> INDICES_TRIMESTRE = List.of("_pkey");
+    private static final List<String> INDICES_LISTAGEM = List.of("_pkey", "_nome_idx", "_busca_idx", "_cnpj_idx");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public TabelasConsultaService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Substitui o conteúdo de 'operadoras' pelo CADOP informado numa única transação (TRUNCATE + INSERT).
+     * Cada carga completa reescreve a tabela em vez de acumular linhas, e o índice único em
+     * registro_ans garante uma linha por operadora.
+     */
+    public void recarregarOperadoras(Collection<Operadora> operadoras) {
+        // Mesmo layout que o Hibernate cria para a entidade Operadora
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS operadoras (" +
+                "id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, " +
+                "registro_ans VARCHAR(255), cnpj VARCHAR(255), razao_social VARCHAR(255), " +
+                "modalidade VARCHAR(255), uf VARCHAR(255))");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // Também limpa as duplicatas acumuladas por versões que só faziam INSERT
+            jdbcTemplate.execute("TRUNCATE operadoras RESTART IDENTITY");
+            jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS operadoras_registro_ans_key ON operadoras (registro_ans)");
+            jdbcTemplate.batchUpdate("INSERT INTO operadoras (registro_ans, cnpj, razao_social, modalidade, uf) " +
+                    "VALUES (?, ?, ?, ?, ?)", operadoras, 1000, (ps, o) -> {
+                ps.setString(1, o.getRegistroAns());
+                ps.setString(2, o.getCnpj());
+                ps.setString(3, o.getRazaoSocial());
+                ps.setString(4, o.getModalidade());
+                ps.setString(5, o.getUf());
+            });
+        });
+        System.out.println("   Operadoras recarregadas: " + operadoras.size() + ".");
+    }
+
+    /**
+     * Reconstrói as tabelas de leitura a partir de 'despesas' e 'operadoras' e publica atomicamente.
+     */
+    public void publicar() {
+        long inicio = System.currentTimeMillis();
+        System.out.println("--- [3.4] Publicando tabelas de consulta da API ---");
+
+        construirTrimestre();
+        construirListagem();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            trocar(TRIMESTRE, INDICES_TRIMESTRE);
+            trocar(LISTAGEM, INDICES_LISTAGEM);
+        });
+
+        System.out.println("   Tabelas " + LISTAGEM + " e " + TRIMESTRE + " publicadas em "
+                + (System.currentTimeMillis() - inicio) + " ms.");
+    }
+
+    private void construirTrimestre() {
+        String novo = TRIMESTRE + "_novo";
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + novo);
+        jdbcTemplate.execute("CREATE TABLE " + novo + " AS " +
+                "SELECT registro_ans, ano, trimestre, " +
+                "SUM(valor) AS total_despesas, COUNT(*) AS quantidade_despesas " +
+                "FROM despesas WHERE registro_ans IS NOT NULL " +
+                "GROUP BY registro_ans, ano, trimestre");
+        jdbcTemplate.execute("ALTER TABLE " + novo + " ADD CONSTRAINT " + novo + "_pkey " +
+                "PRIMARY KEY (registro_ans, ano, trimestre)");
+        // VACUUM preenche o visibility map: sem ele o Postgres não faz index-only scan
+        jdbcTemplate.execute("VACUUM (ANALYZE) " + novo);
+    }
+
+    private void construirListagem() {
+        String novo = LISTAGEM + "_novo";
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + novo);
+        // 'operadoras' tem uma linha por registro (recarregarOperadoras)
+        jdbcTemplate.execute("CREATE TABLE " + novo + " AS " +
+                "WITH cadastro AS (" +
+                "  SELECT registro_ans, cnpj, razao_social, modalidade, uf " +
+                "  FROM operadoras WHERE registro_ans IS NOT NULL" +
+                "), totais AS (" +
+                "  SELECT registro_ans, SUM(total_despesas) AS total_despesas, " +
+                "         SUM(quantidade_despesas) AS quantidade_despesas " +
+                "  FROM " + TRIMESTRE + "_novo GROUP BY registro_ans" +
+                ") " +
+                "SELECT c.registro_ans, c.cnpj, c.razao_social, UPPER(c.razao_social) AS razao_social_busca, " +
+                "c.modalidade, c.uf, COALESCE(t.total_despesas, 0) AS total_despesas, " +
+                "COALESCE(t.quantidade_despesas, 0) AS quantidade_despesas " +
+                "FROM cadastro c LEFT JOIN totais t ON t.registro_ans = c.registro_ans");
+
+        String colunas = "INCLUDE (registro_ans, cnpj, razao_social, modalidade, uf, total_despesas)";
+        jdbcTemplate.execute("ALTER TABLE " + novo + " ADD CONSTRAINT " + novo + "_pkey PRIMARY KEY (registro_ans)");
+        // Listagem paginada: ORDER BY razao_social, registro_ans
+        jdbcTemplate.execute("CREATE INDEX " + novo + "_nome_idx ON " + novo + " (razao_social, registro_ans) " +
+                "INCLUDE (cnpj, modalidade, uf, total_despesas)");
+        // Busca por prefixo do nome (sem diferenciar maiúsculas) e do CNPJ
+        jdbcTemplate.execute("CREATE INDEX " + novo + "_busca_idx ON " + novo +
+                " (razao_social_busca text_pattern_ops) " + colunas);
+        jdbcTemplate.execute("CREATE INDEX " + novo + "_cnpj_idx ON " + novo + " (cnpj text_pattern_ops) " + colunas);
+        jdbcTemplate.execute("VACUUM (ANALYZE) " + novo);
+    }
+
+    /** Troca a tabela publicada pela "_novo" (executado dentro da transação de publicação). */
+    private void trocar(String tabela, List<String> indices) {
+        String antiga = tabela + "_antiga";
+        String novo = tabela + "_novo";
+
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + antiga);
+        Boolean existe = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, tabela);
+        if (Boolean.TRUE.equals(existe)) {
+            jdbcTemplate.execute("ALTER TABLE " + tabela + " RENAME TO " + antiga);
+            for (String sufixo : indices) {
+                // Renomear o índice da PK renomeia a constraint junto
+                jdbcTemplate.execute("ALTER INDEX IF EXISTS " + tabela + sufixo + " RENAME TO " + antiga + sufixo);
+            }
+        }
+        jdbcTemplate.execute("ALTER TABLE " + novo + " RENAME TO " + tabela);
+        for (String sufixo : indices) {
+            jdbcTemplate.execute("ALTER INDEX " + novo + sufixo + " RENAME TO " + tabela + sufixo);
+        }
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + antiga);
+    }
+}
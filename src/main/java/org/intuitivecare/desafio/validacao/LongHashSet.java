@@ -0,0 +1,73 @@
+package org.intuitivecare.desafio.validacao;
+
+/**
+ * Conjunto de longs com endereçamento aberto (sondagem linear), sem boxing.
+ * Usa ~16 bytes por chave, contra ~50+ de um HashSet<Long>.
+ */
+public class LongHashSet {
+
+    private static final long VAZIO = 0L;
+
+    private long[] tabela;
+    private boolean contemZero;
+    private int tamanho;
+
+    public LongHashSet(int capacidadeEsperada) {
+        int capacidade = Integer.highestOneBit(Math.max(16, capacidadeEsperada * 2 - 1)) << 1;
+        this.tabela = new long[capacidade];
+    }
+
+    /**
+     * @return true se a chave foi inserida, false se já existia.
+     */
+    public boolean add(long chave) {
+        if (chave == VAZIO) {
+            if (contemZero) return false;
+            contemZero = true;
+            tamanho++;
+            return true;
+        }
+
+        int mascara = tabela.length - 1;
+        int i = espalhar(chave) & mascara;
+        while (tabela[i] != VAZIO) {
+            if (tabela[i] == chave) return false;
+            i = (i + 1) & mascara;
+        }
+        tabela[i] = chave;
+        // Mantém fator de carga <= 0,5 para sondagens curtas
+        if (++tamanho * 2 > tabela.length) {
+            redimensionar();
+        }
+        return true;
+    }
+
+    public int size() {
+        return tamanho;
+    }
+
+    private void redimensionar() {
+        long[] antiga = tabela;
+        tabela = new long[antiga.length << 1];
+        int mascara = tabela.length - 1;
+        for (long chave : antiga) {
+            if (chave == VAZIO) continue;
+            int i = espalhar(chave) & mascara;
+            while (tabela[i] != VAZIO) {
+                i = (i + 1) & mascara;
+            }
+            tabela[i] = chave;
+        }
+    }
+
+    // Mistura os bits (finalizador do MurmurHash3) para a sondagem não concentrar chaves sequenciais
+    private static int espalhar(long chave) {
+        long h = chave;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
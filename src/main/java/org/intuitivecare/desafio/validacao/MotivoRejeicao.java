@@ -0,0 +1,24 @@
+package org.intuitivecare.desafio.validacao;
+
+/**
+ * Regras de validação de uma linha de despesa. O código vai para o arquivo de rejeitados.
+ */
+public enum MotivoRejeicao {
+
+    REGISTRO_INVALIDO("R01", "Registro ANS ausente ou fora do formato (6 dígitos)"),
+    VALOR_INVALIDO("R02", "Valor ausente ou não numérico"),
+    TRIMESTRE_DESCONHECIDO("R03", "Ano/trimestre não identificado no nome do arquivo"),
+    CHAVE_DUPLICADA("R04", "Chave (registro, conta, ano, trimestre) repetida"),
+    CNPJ_INVALIDO("R05", "CNPJ da operadora com dígito verificador inválido");
+
+    private final String codigo;
+    private final String descricao;
+
+    MotivoRejeicao(String codigo, String descricao) {
+        this.codigo = codigo;
+        this.descricao = descricao;
+    }
+
+    public String getCodigo() { return codigo; }
+    public String getDescricao() { return descricao; }
+}
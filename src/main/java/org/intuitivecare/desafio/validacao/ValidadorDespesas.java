@@ -0,0 +1,290 @@
+package org.intuitivecare.desafio.validacao;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Etapa de validação das despesas, usada em linha pelo parser e pelo enriquecimento.
+ * Nada aqui lança exceção no caminho quente: cada regra devolve um resultado e as linhas
+ * reprovadas vão para o arquivo de rejeitados com o código do motivo.
+ * Uma instância por execução do ETL. Para processar trimestres em paralelo, cada tarefa usa um
+ * {@link #novoEscopo()}: chaves e contadores próprios (sem lock por linha) e o mesmo arquivo de rejeitados.
+ */
+public class ValidadorDespesas implements Closeable {
+
+    /** Retorno de {@link #parseCentavos(String)} quando o valor não é numérico. */
+    public static final long VALOR_INVALIDO = Long.MIN_VALUE;
+
+    /** Retorno de {@link #chave} quando a conta não cabe na chave compacta (não numérica ou longa demais). */
+    public static final long CHAVE_NAO_COMPACTA = -1L;
+
+    // Limite de dígitos da parte inteira; com 17 dígitos ainda é preciso checar se cabe num long em centavos
+    private static final int MAX_DIGITOS_VALOR = 17;
+    private static final long MAX_INTEIRO_CENTAVOS = (Long.MAX_VALUE - 99) / 100;
+
+    private final CSVPrinter rejeitados;
+    private final ValidadorDespesas pai;
+    private final LongHashSet chavesVistas = new LongHashSet(1 << 16);
+    // Chaves raras que não cabem num long: comparadas pelo texto, sem risco de colisão
+    private Set<String> chavesNaoCompactas;
+    private final long[] contagemPorMotivo = new long[MotivoRejeicao.values().length];
+    private long aceitas;
+
+    public ValidadorDespesas(Path arquivoRejeitados) throws IOException {
+        this.rejeitados = new CSVPrinter(Files.newBufferedWriter(arquivoRejeitados, StandardCharsets.UTF_8),
+                CSVFormat.DEFAULT.builder()
+                        .setHeader("Codigo", "Motivo", "Arquivo", "Linha", "RegistroANS", "Conta", "Valor", "Detalhe")
+                        .setDelimiter(';')
+                        .build());
+        this.pai = null;
+    }
+
+    private ValidadorDespesas(ValidadorDespesas pai) {
+        this.rejeitados = pai.rejeitados;
+        this.pai = pai;
+    }
+
+    /**
+     * Validador para uma tarefa (ex: um trimestre). A chave inclui ano/trimestre, então a checagem
+     * de duplicidade por escopo equivale à global. Os contadores são somados ao pai no close().
+     */
+    public ValidadorDespesas novoEscopo() {
+        return new ValidadorDespesas(this);
+    }
+
+    /**
+     * Valida uma linha já extraída do CSV.
+     * @return null se a linha é válida; senão o motivo (a linha já foi registrada nos rejeitados).
+     */
+    public MotivoRejeicao validarLinha(String arquivo, long linha, String registroAns, String conta,
+                                       String valorBruto, long centavos, int ano, int trimestre) throws IOException {
+        MotivoRejeicao motivo = null;
+
+        if (!registroValido(registroAns)) {
+            motivo = MotivoRejeicao.REGISTRO_INVALIDO;
+        } else if (centavos == VALOR_INVALIDO) {
+            motivo = MotivoRejeicao.VALOR_INVALIDO;
+        } else if (!trimestreConhecido(ano, trimestre)) {
+            motivo = MotivoRejeicao.TRIMESTRE_DESCONHECIDO;
+        } else if (!registrarChave(registroAns, conta, ano, trimestre)) {
+            motivo = MotivoRejeicao.CHAVE_DUPLICADA;
+        }
+
+        if (motivo == null) {
+            aceitas++;
+        } else {
+            rejeitar(motivo, arquivo, linha, registroAns, conta, valorBruto, "");
+        }
+        return motivo;
+    }
+
+    /**
+     * Registra nos rejeitados uma linha reprovada fora do parser (ex: CNPJ inválido no enriquecimento).
+     */
+    public void rejeitar(MotivoRejeicao motivo, String arquivo, long linha, String registroAns,
+                         String conta, String valor, String detalhe) throws IOException {
+        contagemPorMotivo[motivo.ordinal()]++;
+        synchronized (rejeitados) {
+            rejeitados.printRecord(motivo.getCodigo(), motivo.name(), arquivo, linha > 0 ? linha : "",
+                    registroAns, conta, valor, detalhe);
+        }
+    }
+
+    // @return false se a chave já tinha sido vista neste escopo
+    private boolean registrarChave(String registroAns, String conta, int ano, int trimestre) {
+        long compacta = chave(registroAns, conta, ano, trimestre);
+        if (compacta != CHAVE_NAO_COMPACTA) {
+            return chavesVistas.add(compacta);
+        }
+        if (chavesNaoCompactas == null) {
+            chavesNaoCompactas = new HashSet<>();
+        }
+        return chavesNaoCompactas.add(registroAns + '|' + conta + '|' + ano + '|' + trimestre);
+    }
+
+    /** Desfaz a contagem de aceitas para uma linha reprovada numa etapa posterior. */
+    public void desfazerAceite() {
+        aceitas--;
+    }
+
+    public synchronized long getAceitas() { return aceitas; }
+
+    public synchronized long getRejeitadas(MotivoRejeicao motivo) {
+        return contagemPorMotivo[motivo.ordinal()];
+    }
+
+    /** Imprime a contagem de aceitas e de rejeitadas por regra. */
+    public synchronized void imprimirRelatorio() {
+        System.out.println("--- Validação de Despesas ---");
+        System.out.println("   Aceitas: " + aceitas);
+        for (MotivoRejeicao motivo : MotivoRejeicao.values()) {
+            System.out.println("   [" + motivo.getCodigo() + "] " + motivo.getDescricao() + ": "
+                    + contagemPorMotivo[motivo.ordinal()]);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (pai != null) {
+            pai.somar(this);
+        } else {
+            rejeitados.close();
+        }
+    }
+
+    private synchronized void somar(ValidadorDespesas escopo) {
+        aceitas += escopo.aceitas;
+        for (int i = 0; i < contagemPorMotivo.length; i++) {
+            contagemPorMotivo[i] += escopo.contagemPorMotivo[i];
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Regras (sem exceções no caminho quente)
+    // ---------------------------------------------------------------------------------------------
+
+    /** Registro ANS: exatamente 6 dígitos. */
+    public static boolean registroValido(String registro) {
+        if (registro == null || registro.length() != 6) return false;
+        for (int i = 0; i < 6; i++) {
+            char c = registro.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    public static boolean trimestreConhecido(int ano, int trimestre) {
+        return ano >= 2000 && ano < 2128 && trimestre >= 1 && trimestre <= 4;
+    }
+
+    /**
+     * Valida os dígitos verificadores do CNPJ. Aceita com ou sem máscara (pontos, barra, hífen).
+     */
+    public static boolean cnpjValido(String cnpj) {
+        if (cnpj == null) return false;
+
+        int[] digitos = new int[14];
+        int n = 0;
+        for (int i = 0; i < cnpj.length(); i++) {
+            char c = cnpj.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (n == 14) return false;
+                digitos[n++] = c - '0';
+            } else if (c != '.' && c != '/' && c != '-' && c != ' ') {
+                return false;
+            }
+        }
+        if (n != 14) return false;
+
+        // Rejeita sequências repetidas (00000000000000, 11111111111111...), que passam no cálculo
+        boolean todosIguais = true;
+        for (int i = 1; i < 14 && todosIguais; i++) {
+            todosIguais = digitos[i] == digitos[0];
+        }
+        if (todosIguais) return false;
+
+        return digitos[12] == digitoVerificador(digitos, 12) && digitos[13] == digitoVerificador(digitos, 13);
+    }
+
+    private static int digitoVerificador(int[] digitos, int quantidade) {
+        int soma = 0;
+        int peso = quantidade - 7; // 5 para o 1º dígito, 6 para o 2º; depois volta de 9 a 2
+        for (int i = 0; i < quantidade; i++) {
+            soma += digitos[i] * peso;
+            peso = peso == 2 ? 9 : peso - 1;
+        }
+        int resto = soma % 11;
+        return resto < 2 ? 0 : 11 - resto;
+    }
+
+    /**
+     * Converte valor no formato brasileiro ("-1.234,56") para centavos.
+     * Pontos são separadores de milhar e a vírgula é o separador decimal (no máximo 2 casas).
+     * A parte inteira aceita até 17 dígitos, desde que o total em centavos caiba num long.
+     * @return o valor em centavos ou {@link #VALOR_INVALIDO}.
+     */
+    public static long parseCentavos(String valor) {
+        if (valor == null || valor.isEmpty()) return VALOR_INVALIDO;
+
+        int i = 0;
+        boolean negativo = false;
+        char primeiro = valor.charAt(0);
+        if (primeiro == '-' || primeiro == '+') {
+            negativo = primeiro == '-';
+            i++;
+        }
+
+        long inteiro = 0;
+        int digitos = 0;
+        int casasDecimais = -1; // -1 = ainda na parte inteira
+        long decimal = 0;
+
+        for (; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (casasDecimais < 0) {
+                    if (++digitos > MAX_DIGITOS_VALOR) return VALOR_INVALIDO;
+                    inteiro = inteiro * 10 + (c - '0');
+                } else {
+                    if (++casasDecimais > 2) return VALOR_INVALIDO;
+                    decimal = decimal * 10 + (c - '0');
+                }
+            } else if (c == '.' && casasDecimais < 0) {
+                // separador de milhar: ignorado
+            } else if (c == ',' && casasDecimais < 0) {
+                casasDecimais = 0;
+            } else {
+                return VALOR_INVALIDO;
+            }
+        }
+
+        if (digitos == 0 && casasDecimais <= 0) return VALOR_INVALIDO;
+        if (inteiro > MAX_INTEIRO_CENTAVOS) return VALOR_INVALIDO;
+        if (casasDecimais == 1) decimal *= 10;
+
+        long centavos = inteiro * 100 + decimal;
+        return negativo ? -centavos : centavos;
+    }
+
+    /**
+     * Chave compacta e exata de (registro, conta, ano, trimestre), sempre &gt;= 0.
+     * Só existe quando a conta é numérica com até 10 dígitos (abaixo de 2^34); senão devolve
+     * {@link #CHAVE_NAO_COMPACTA} e a duplicidade é checada pelo texto da chave.
+     * O registro deve ter passado por {@link #registroValido(String)}.
+     */
+    public static long chave(String registroAns, String conta, int ano, int trimestre) {
+        long registro = 0;
+        for (int i = 0; i < registroAns.length(); i++) {
+            registro = registro * 10 + (registroAns.charAt(i) - '0');
+        }
+
+        long contaNumerica = 0;
+        boolean exata = conta != null && !conta.isEmpty() && conta.length() <= 10;
+        if (exata) {
+            for (int i = 0; i < conta.length(); i++) {
+                char c = conta.charAt(i);
+                if (c < '0' || c > '9') {
+                    exata = false;
+                    break;
+                }
+                contaNumerica = contaNumerica * 10 + (c - '0');
+            }
+        }
+
+        // 20 bits de registro | 7 de ano | 2 de trimestre | 34 de conta = 63 bits
+        long periodo = ((long) (ano - 2000) << 2) | (trimestre - 1);
+        if (exata && contaNumerica < (1L << 34)) {
+            return (registro << 43) | (periodo << 34) | contaNumerica;
+        }
+
+        return CHAVE_NAO_COMPACTA;
+    }
+}
@@ -0,0 +1,151 @@
+package org.intuitivecare.desafio.agregacao;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Paridade dos kernels vetoriais com os escalares (referência), incluindo caudas que não fecham
+ * uma lane, chaves byte (B2L), blocos com risco de overflow e overflow de verdade.
+ */
+class KernelsVetoriaisTest {
+
+    // Tamanhos que não são múltiplos das lanes nem do bloco de 2048
+    private static final int[] TAMANHOS = {0, 1, 3, 7, 8, 9, 15, 17, 2047, 2048, 2049, 4099, 10_001};
+
+    private static KernelsAgregacao vetoriais;
+    private final KernelsAgregacao escalares = new KernelsEscalares();
+    private final Random random = new Random(42);
+
+    @BeforeAll
+    static void carregarVectorApi() {
+        // O surefire roda com --add-modules jdk.incubator.vector; sem o módulo não há o que comparar
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent());
+        vetoriais = new KernelsVetoriais();
+    }
+
+    @Test
+    void somaMinimoMaximoIguaisAoEscalar() {
+        for (int n : TAMANHOS) {
+            long[] valores = valores(n + 5, 1_000_000_000L); // sobra no fim: o kernel só pode ler n
+            assertEquals(escalares.soma(valores, n), vetoriais.soma(valores, n), "soma n=" + n);
+            assertEquals(escalares.minimo(valores, n), vetoriais.minimo(valores, n), "minimo n=" + n);
+            assertEquals(escalares.maximo(valores, n), vetoriais.maximo(valores, n), "maximo n=" + n);
+        }
+    }
+
+    @Test
+    void somaEContagemComMascaraIguaisAoEscalar() {
+        for (int n : TAMANHOS) {
+            long[] valores = valores(n + 5, 1_000_000_000L);
+            int[] chaves = chavesInt(n + 5, 5);
+            for (int chave = 0; chave < 6; chave++) {
+                assertEquals(escalares.somaOnde(valores, chaves, chave, n),
+                        vetoriais.somaOnde(valores, chaves, chave, n), "somaOnde n=" + n + " chave=" + chave);
+                assertEquals(escalares.contagemOnde(chaves, chave, n),
+                        vetoriais.contagemOnde(chaves, chave, n), "contagemOnde n=" + n + " chave=" + chave);
+            }
+        }
+    }
+
+    @Test
+    void agrupamentoComChavesIntIgualAoEscalar() {
+        // Poucos grupos (caminho vetorial) e muitos (histograma escalar)
+        for (int grupos : new int[]{1, 3, 4, KernelsVetoriais.maximoGruposVetorial(), 27, 300}) {
+            for (int n : TAMANHOS) {
+                long[] valores = valores(n + 5, 1_000_000_000L);
+                int[] chaves = chavesInt(n + 5, grupos);
+                assertGruposIguais(grupos, n,
+                        (s, c) -> escalares.somarPorGrupo(valores, chaves, n, s, c),
+                        (s, c) -> vetoriais.somarPorGrupo(valores, chaves, n, s, c));
+            }
+        }
+    }
+
+    @Test
+    void agrupamentoComChavesByteIgualAoEscalar() {
+        for (int grupos : new int[]{1, 4, KernelsVetoriais.maximoGruposVetorial(), 27, 256}) {
+            for (int n : TAMANHOS) {
+                long[] valores = valores(n, 1_000_000_000L);
+                byte[] chaves = new byte[n]; // exatamente n: a cauda B2L não pode ler além do array
+                for (int i = 0; i < n; i++) {
+                    chaves[i] = (byte) random.nextInt(grupos);
+                }
+                assertGruposIguais(grupos, n,
+                        (s, c) -> escalares.somarPorGrupo(valores, chaves, n, s, c),
+                        (s, c) -> vetoriais.somarPorGrupo(valores, chaves, n, s, c));
+            }
+        }
+    }
+
+    @Test
+    void blocoComRiscoDeOverflowCaiNoCaminhoExato() {
+        // |valor| * linhas do bloco não cabe num long, mas a soma final cabe: o bloco é refeito no escalar
+        int n = 4099;
+        long[] valores = new long[n];
+        int[] chaves = new int[n];
+        for (int i = 0; i < n; i++) {
+            valores[i] = i % 2 == 0 ? Long.MAX_VALUE / 3 : -(Long.MAX_VALUE / 3);
+            chaves[i] = i % 3;
+        }
+        assertEquals(escalares.soma(valores, n), vetoriais.soma(valores, n));
+        assertEquals(escalares.somaOnde(valores, chaves, 1, n), vetoriais.somaOnde(valores, chaves, 1, n));
+        assertGruposIguais(3, n,
+                (s, c) -> escalares.somarPorGrupo(valores, chaves, n, s, c),
+                (s, c) -> vetoriais.somarPorGrupo(valores, chaves, n, s, c));
+
+        valores[0] = Long.MIN_VALUE; // |MIN_VALUE| não cabe num long: também precisa do caminho exato
+        valores[1] = Long.MAX_VALUE;
+        assertEquals(escalares.soma(valores, n), vetoriais.soma(valores, n));
+    }
+
+    @Test
+    void overflowRealLancaExcecao() {
+        long[] valores = new long[100];
+        java.util.Arrays.fill(valores, Long.MAX_VALUE / 10);
+        int[] chaves = new int[100];
+
+        assertThrows(ArithmeticException.class, () -> escalares.soma(valores, 100));
+        assertThrows(ArithmeticException.class, () -> vetoriais.soma(valores, 100));
+        assertThrows(ArithmeticException.class, () -> vetoriais.somaOnde(valores, chaves, 0, 100));
+        assertThrows(ArithmeticException.class,
+                () -> vetoriais.somarPorGrupo(valores, chaves, 100, new long[1], new long[1]));
+    }
+
+    // ---------------------------------------------------------------------------------------------
+
+    private interface Agrupamento {
+        void executar(long[] somas, long[] contagens);
+    }
+
+    private static void assertGruposIguais(int grupos, int n, Agrupamento referencia, Agrupamento testado) {
+        long[] somasEsperadas = new long[grupos];
+        long[] contagensEsperadas = new long[grupos];
+        long[] somas = new long[grupos];
+        long[] contagens = new long[grupos];
+        referencia.executar(somasEsperadas, contagensEsperadas);
+        testado.executar(somas, contagens);
+        assertArrayEquals(somasEsperadas, somas, "somas grupos=" + grupos + " n=" + n);
+        assertArrayEquals(contagensEsperadas, contagens, "contagens grupos=" + grupos + " n=" + n);
+    }
+
+    private long[] valores(int n, long amplitude) {
+        long[] valores = new long[n];
+        for (int i = 0; i < n; i++) {
+            valores[i] = (long) ((random.nextDouble() * 2 - 1) * amplitude);
+        }
+        return valores;
+    }
+
+    private int[] chavesInt(int n, int grupos) {
+        int[] chaves = new int[n];
+        for (int i = 0; i < n; i++) {
+            chaves[i] = random.nextInt(grupos);
+        }
+        return chaves;
+    }
+}
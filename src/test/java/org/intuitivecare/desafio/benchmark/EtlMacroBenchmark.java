@@ -0,0 +1,300 @@
+package org.intuitivecare.desafio.benchmark;
+
+import org.intuitivecare.desafio.DesafioApplication;
+import org.intuitivecare.desafio.cubo.CuboDespesasService;
+import org.intuitivecare.desafio.cubo.Dimensao;
+import org.intuitivecare.desafio.delta.DeltaDespesasService;
+import org.intuitivecare.desafio.service.EtlPipelineService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Macro-benchmark do ETL de produção sobre dados sintéticos em escala configurável.
+ * Sobe o contexto Spring no perfil batch e roda {@link EtlPipelineService#executarArquivosLocais} com
+ * ZIPs e CADOP gerados em disco: extração, parser/validação, enriquecimento, CSV, cubo, delta e
+ * PostgreSQL (opcional), com o paralelismo e os lotes do governador de memória. Depois mede as agregações do cubo.
+ * Mede por etapa tempo, linhas/s, tempo de GC e pico de heap; no total, o pico de RSS do processo.
+ * Dentro do ETL, cada etapa do pipeline (parser, enriquecimento, CSV, cubo, delta, banco e espera por memória)
+ * vira uma etapa "pipeline_*" com o tempo somado entre os trimestres em paralelo (sem GC, heap e RSS próprios: -1).
+ * Gera um relatório JSON e compara com um baseline salvo, falhando (exit 1) se alguma etapa
+ * ficar mais lenta que o limite.
+ *
+ * Execução: ./mvnw -Pbenchmark -DskipTests verify -Dbenchmark.fator=10
+ * (o profile roda em target/benchmark, onde ficam as saídas do ETL: consolidado, rejeitados, extraídos).
+ * Propriedades: benchmark.fator (1), benchmark.invalidas (0.0), benchmark.limite (0.15),
+ * benchmark.baseline (&lt;benchmark.dirBaseline&gt;/baseline-sf&lt;fator&gt;.json), benchmark.salvarBaseline (false),
+ * benchmark.db.url / benchmark.db.usuario / benchmark.db.senha (sem URL o sink de banco fica desligado).
+ */
+public class EtlMacroBenchmark {
+
+    // Consultas sem filtro por rodada da etapa "agregacao" (cada uma varre a coluna de valores)
+    private static final int REPETICOES_AGREGACAO = 20;
+    // Abaixo disso a variação é ruído de medição: a etapa aparece na comparação, mas não reprova
+    private static final long TEMPO_MINIMO_COMPARACAO_MS = 50;
+
+    private final double fator;
+    private final List<Etapa> etapas = new ArrayList<>();
+
+    public EtlMacroBenchmark(double fator) {
+        this.fator = fator;
+    }
+
+    public static void main(String[] args) throws Exception {
+        double fator = Double.parseDouble(propriedade("benchmark.fator", "1"));
+        double invalidas = Double.parseDouble(propriedade("benchmark.invalidas", "0.0"));
+        double limite = Double.parseDouble(propriedade("benchmark.limite", "0.15"));
+        String sufixo = fator == Math.rint(fator) ? String.valueOf((long) fator) : String.valueOf(fator);
+        Path baseline = Paths.get(propriedade("benchmark.baseline",
+                propriedade("benchmark.dirBaseline", "benchmark") + "/baseline-sf" + sufixo + ".json"));
+        boolean salvarBaseline = Boolean.parseBoolean(propriedade("benchmark.salvarBaseline", "false"));
+
+        Path trabalho = Paths.get("sf" + sufixo);
+        EtlMacroBenchmark benchmark = new EtlMacroBenchmark(fator);
+
+        System.out.println(">>> Gerando dados sintéticos (fator " + fator + ", " + (invalidas * 100) + "% inválidas)...");
+        GeradorDadosSinteticos gerador = new GeradorDadosSinteticos(fator, invalidas);
+        List<File> zips = gerador.gerarTrimestres(trabalho.resolve("entrada"), 2025);
+        File cadop = gerador.gerarCadop(trabalho.resolve("entrada"));
+
+        long inicio = System.nanoTime();
+        benchmark.executar(zips, cadop);
+        long totalMs = (System.nanoTime() - inicio) / 1_000_000;
+
+        String json = benchmark.relatorioJson(totalMs);
+        Path relatorio = trabalho.resolve("relatorio.json");
+        Files.writeString(relatorio, json, StandardCharsets.UTF_8);
+        System.out.println(json);
+        System.out.println(">>> Relatório gravado em " + relatorio.toAbsolutePath());
+
+        if (salvarBaseline) {
+            Files.createDirectories(baseline.toAbsolutePath().getParent());
+            Files.writeString(baseline, json, StandardCharsets.UTF_8);
+            System.out.println(">>> Baseline atualizado: " + baseline.toAbsolutePath());
+            return;
+        }
+
+        if (!Files.exists(baseline)) {
+            System.out.println(">>> Sem baseline em " + baseline + " (use -Dbenchmark.salvarBaseline=true para criar).");
+            return;
+        }
+
+        if (!benchmark.compararComBaseline(Files.readString(baseline, StandardCharsets.UTF_8), limite)) {
+            System.exit(1);
+        }
+    }
+
+    void executar(List<File> zips, File cadop) throws Exception {
+        String url = propriedade("benchmark.db.url", null);
+        List<String> argumentos = new ArrayList<>();
+        // O runner só inicializa os sinks e retorna, sem acessar a ANS; o ETL é disparado abaixo
+        argumentos.add("--etl.medir-inicializacao=true");
+        argumentos.add("--etl.watch.enabled=false");
+        argumentos.add("--etl.sink.banco.enabled=" + (url != null));
+        if (url != null) {
+            argumentos.add("--spring.datasource.url=" + url);
+            argumentos.add("--spring.datasource.username=" + propriedade("benchmark.db.usuario", "postgres"));
+            argumentos.add("--spring.datasource.password=" + propriedade("benchmark.db.senha", ""));
+        }
+
+        try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(DesafioApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("batch")
+                .run(argumentos.toArray(new String[0]))) {
+            EtlPipelineService pipeline = contexto.getBean(EtlPipelineService.class);
+            CuboDespesasService cubo = contexto.getBean(CuboDespesasService.class);
+            boolean delta = contexto.getBean(DeltaDespesasService.class).isHabilitado();
+
+            // Mesmo caminho da execução completa; com banco, a etapa inclui partições e tabelas de leitura
+            medir(url == null ? "etl" : "etl_banco", () -> {
+                pipeline.executarArquivosLocais(zips, cadop);
+                return cubo.getCubo().getLinhas();
+            });
+            for (EtlPipelineService.Etapa etapaPipeline : EtlPipelineService.Etapa.values()) {
+                // Etapas de sinks desligados não rodam: ficariam zeradas no relatório
+                if (etapaPipeline == EtlPipelineService.Etapa.BANCO && url == null) continue;
+                if (etapaPipeline == EtlPipelineService.Etapa.DELTA && !delta) continue;
+                Etapa etapa = new Etapa("pipeline_" + etapaPipeline.name().toLowerCase(Locale.ROOT),
+                        pipeline.getTempoEtapaMs(etapaPipeline), pipeline.getLinhasEtapa(etapaPipeline), -1, -1, -1);
+                etapas.add(etapa);
+                System.out.println(">>> [benchmark] " + etapa.resumo());
+            }
+
+            // Consultas sem filtro sobre o cubo: caminho dos kernels de agregação (vetoriais com --add-modules)
+            medir("agregacao", () -> {
+                long linhas = 0;
+                for (int i = 0; i < REPETICOES_AGREGACAO; i++) {
+                    cubo.consulta().somaCentavos();
+                    cubo.consulta().topN(Dimensao.UF, 5);
+                    cubo.consulta().topN(Dimensao.PERIODO, 4);
+                    cubo.consulta().topN(Dimensao.OPERADORA, 10);
+                    linhas += 4L * cubo.getCubo().getLinhas();
+                }
+                return linhas;
+            });
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Medição
+    // ---------------------------------------------------------------------------------------------
+
+    interface Passo {
+        long executar() throws Exception;
+    }
+
+    private void medir(String nome, Passo passo) throws Exception {
+        List<MemoryPoolMXBean> heap = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heap.add(pool);
+            }
+        }
+        long gcAntes = tempoGcMs();
+        long inicio = System.nanoTime();
+
+        long linhas = passo.executar();
+
+        long ms = Math.max(1, (System.nanoTime() - inicio) / 1_000_000);
+        long picoHeap = 0;
+        for (MemoryPoolMXBean pool : heap) {
+            picoHeap += pool.getPeakUsage().getUsed();
+        }
+        Etapa etapa = new Etapa(nome, ms, linhas, tempoGcMs() - gcAntes, picoHeap, lerStatusKb("VmRSS"));
+        etapas.add(etapa);
+        System.out.println(">>> [benchmark] " + etapa.resumo());
+    }
+
+    // O profile Maven repassa as propriedades mesmo vazias: vazio = não informado
+    private static String propriedade(String nome, String padrao) {
+        String valor = System.getProperty(nome);
+        return valor == null || valor.isBlank() ? padrao : valor;
+    }
+
+    private static long tempoGcMs() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    // VmRSS / VmHWM (pico) em KB; -1 fora do Linux
+    private static long lerStatusKb(String campo) {
+        try {
+            for (String linha : Files.readAllLines(Paths.get("/proc/self/status"))) {
+                if (linha.startsWith(campo + ":")) {
+                    return Long.parseLong(linha.replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Sem /proc: métrica indisponível
+        }
+        return -1;
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Relatório e comparação
+    // ---------------------------------------------------------------------------------------------
+
+    String relatorioJson(long totalMs) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n");
+        sb.append("  \"fatorEscala\": ").append(fator).append(",\n");
+        sb.append("  \"data\": \"").append(Instant.now()).append("\",\n");
+        sb.append("  \"jvm\": \"").append(System.getProperty("java.vm.name")).append(' ')
+                .append(System.getProperty("java.version")).append("\",\n");
+        sb.append("  \"processadores\": ").append(Runtime.getRuntime().availableProcessors()).append(",\n");
+        sb.append("  \"heapMaximoBytes\": ").append(Runtime.getRuntime().maxMemory()).append(",\n");
+        sb.append("  \"tempoTotalMs\": ").append(totalMs).append(",\n");
+        sb.append("  \"picoRssKb\": ").append(lerStatusKb("VmHWM")).append(",\n");
+        sb.append("  \"gcTotalMs\": ").append(tempoGcMs()).append(",\n");
+        sb.append("  \"etapas\": [\n");
+        for (int i = 0; i < etapas.size(); i++) {
+            sb.append("    ").append(etapas.get(i).json()).append(i < etapas.size() - 1 ? ",\n" : "\n");
+        }
+        sb.append("  ]\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    /**
+     * Compara o tempo de cada etapa com o baseline.
+     * @return false se alguma etapa ficou mais lenta que (1 + limite) vezes o baseline.
+     */
+    boolean compararComBaseline(String baselineJson, double limite) {
+        Pattern padrao = Pattern.compile("\"nome\": \"(\\w+)\", \"tempoMs\": (\\d+)");
+        Map<String, Long> tempos = new HashMap<>();
+        Matcher m = padrao.matcher(baselineJson);
+        while (m.find()) {
+            tempos.put(m.group(1), Long.parseLong(m.group(2)));
+        }
+
+        boolean ok = true;
+        System.out.println(">>> Comparação com baseline (limite +" + Math.round(limite * 100) + "%):");
+        for (Etapa etapa : etapas) {
+            Long anterior = tempos.get(etapa.nome);
+            if (anterior == null) {
+                System.out.println(String.format("   %-23s %8d ms  (sem baseline)", etapa.nome, etapa.tempoMs));
+                continue;
+            }
+            double variacao = (etapa.tempoMs - anterior) / (double) Math.max(1, anterior);
+            boolean relevante = Math.max(etapa.tempoMs, anterior) >= TEMPO_MINIMO_COMPARACAO_MS;
+            boolean regressao = relevante && variacao > limite;
+            ok &= !regressao;
+            System.out.println(String.format("   %-23s %8d ms  baseline %8d ms  %+6.1f%%  %s",
+                    etapa.nome, etapa.tempoMs, anterior, variacao * 100,
+                    regressao ? "REGRESSÃO" : relevante ? "ok" : "ok (abaixo de " + TEMPO_MINIMO_COMPARACAO_MS + " ms)"));
+        }
+        return ok;
+    }
+
+    static class Etapa {
+        final String nome;
+        final long tempoMs;
+        final long linhas;
+        final long gcMs;
+        final long picoHeapBytes;
+        final long rssKb;
+
+        Etapa(String nome, long tempoMs, long linhas, long gcMs, long picoHeapBytes, long rssKb) {
+            this.nome = nome;
+            this.tempoMs = tempoMs;
+            this.linhas = linhas;
+            this.gcMs = gcMs;
+            this.picoHeapBytes = picoHeapBytes;
+            this.rssKb = rssKb;
+        }
+
+        long linhasPorSegundo() {
+            return linhas * 1000 / Math.max(1, tempoMs);
+        }
+
+        String json() {
+            return "{\"nome\": \"" + nome + "\", \"tempoMs\": " + tempoMs + ", \"linhas\": " + linhas
+                    + ", \"linhasPorSegundo\": " + linhasPorSegundo() + ", \"gcMs\": " + gcMs
+                    + ", \"picoHeapBytes\": " + picoHeapBytes + ", \"rssKb\": " + rssKb + "}";
+        }
+
+        String resumo() {
+            return String.format("%-23s %8d ms  %10d linhas  %10d linhas/s  GC %6d ms  heap %6d MB",
+                    nome, tempoMs, linhas, linhasPorSegundo(), gcMs, picoHeapBytes / (1024 * 1024));
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package org.intuitivecare.desafio.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Gera trimestres ANS (um ZIP por trimestre) e um CADOP sintéticos, no mesmo layout dos arquivos reais.
+ * Fator de escala 1 ~ volume de um trimestre real (~1.100 operadoras x 600 contas).
+ * O fator multiplica o número de operadoras até o limite de registros ANS de 6 dígitos;
+ * acima dele, multiplica as contas por operadora, mantendo as chaves únicas.
+ * <p>
+ * Com taxa de inválidas &gt; 0, as falhas são distribuídas entre as regras do validador:
+ * R01 (registro fora do formato), R02 (valor não numérico), R03 (arquivo sem ano/trimestre no nome),
+ * R04 (linha repetida) e R05 (operadora com CNPJ inválido no CADOP).
+ */
+public class GeradorDadosSinteticos {
+
+    static final int OPERADORAS_BASE = 1_100;
+    static final int CONTAS_POR_OPERADORA = 600;
+    // Registros ANS de 100000 a 999999: nunca passam de 6 dígitos (senão tudo viraria R01)
+    static final int PRIMEIRO_REGISTRO = 100_000;
+    static final int MAX_OPERADORAS = 900_000;
+
+    private static final String[] UFS = {"AC", "AL", "AM", "AP", "BA", "CE", "DF", "ES", "GO", "MA", "MG", "MS", "MT",
+            "PA", "PB", "PE", "PI", "PR", "RJ", "RN", "RO", "RR", "RS", "SC", "SE", "SP", "TO"};
+    private static final String[] MODALIDADES = {"Medicina de Grupo", "Cooperativa Médica", "Autogestão",
+            "Seguradora Especializada em Saúde", "Odontologia de Grupo", "Filantropia"};
+    // Prefixos do plano de contas: '4' = despesa (o que o parser aproveita), demais são descartados
+    private static final String[] PREFIXOS_CONTA = {"41", "43", "44", "46", "31", "21", "12"};
+    private static final String CABECALHO =
+            "\"DATA\";\"REG_ANS\";\"CD_CONTA_CONTABIL\";\"DESCRICAO\";\"VL_SALDO_INICIAL\";\"VL_SALDO_FINAL\"";
+
+    private final double fatorEscala;
+    private final double taxaLinhasInvalidas;
+    private final Random random = new Random(42);
+
+    public GeradorDadosSinteticos(double fatorEscala, double taxaLinhasInvalidas) {
+        this.fatorEscala = fatorEscala;
+        this.taxaLinhasInvalidas = taxaLinhasInvalidas;
+    }
+
+    public int getOperadoras() {
+        return (int) Math.max(1, Math.min(MAX_OPERADORAS, Math.round(OPERADORAS_BASE * fatorEscala)));
+    }
+
+    public int getContasPorOperadora() {
+        double linhas = (double) OPERADORAS_BASE * CONTAS_POR_OPERADORA * fatorEscala;
+        return (int) Math.max(CONTAS_POR_OPERADORA, Math.round(linhas / getOperadoras()));
+    }
+
+    /** Gera os ZIPs de 1T, 2T e 3T do ano informado. */
+    public List<File> gerarTrimestres(Path diretorio, int ano) throws IOException {
+        Files.createDirectories(diretorio);
+        List<File> arquivos = new ArrayList<>();
+        for (int trimestre = 1; trimestre <= 3; trimestre++) {
+            Path arquivo = diretorio.resolve(trimestre + "T" + ano + ".zip");
+            gerarTrimestre(arquivo, ano, trimestre);
+            arquivos.add(arquivo.toFile());
+        }
+        return arquivos;
+    }
+
+    public File gerarCadop(Path diretorio) throws IOException {
+        Files.createDirectories(diretorio);
+        Path arquivo = diretorio.resolve("Relatorio_cadop.csv");
+        try (BufferedWriter w = Files.newBufferedWriter(arquivo, StandardCharsets.ISO_8859_1)) {
+            w.write("REGISTRO_OPERADORA;CNPJ;Razao_Social;Nome_Fantasia;Modalidade;UF");
+            w.newLine();
+            for (int i = 0; i < getOperadoras(); i++) {
+                String cnpj = cnpj(i);
+                if (cnpjInvalido(i)) {
+                    // Troca o último dígito verificador: vira rejeição R05 no enriquecimento
+                    cnpj = cnpj.substring(0, 13) + (char) ('0' + (cnpj.charAt(13) - '0' + 1) % 10);
+                }
+                w.write(registro(i) + ";" + cnpj + ";OPERADORA SINTETICA " + i + " LTDA;SINT " + i + ";"
+                        + MODALIDADES[i % MODALIDADES.length] + ";" + UFS[i % UFS.length]);
+                w.newLine();
+            }
+        }
+        return arquivo.toFile();
+    }
+
+    private void gerarTrimestre(Path arquivo, int ano, int trimestre) throws IOException {
+        String data = ano + "-" + String.format("%02d", (trimestre - 1) * 3 + 1) + "-01";
+        int contas = getContasPorOperadora();
+        // Linhas sem ano/trimestre identificável (R03) vão para um segundo arquivo do mesmo ZIP
+        List<String> semPeriodo = new ArrayList<>();
+
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(arquivo.toFile()));
+             BufferedWriter w = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.ISO_8859_1))) {
+            zip.putNextEntry(new ZipEntry(trimestre + "T" + ano + ".csv"));
+            w.write(CABECALHO);
+            w.newLine();
+            StringBuilder linha = new StringBuilder(128);
+            for (int op = 0; op < getOperadoras(); op++) {
+                String registro = registro(op);
+                for (int c = 0; c < contas; c++) {
+                    String prefixo = PREFIXOS_CONTA[c % PREFIXOS_CONTA.length];
+                    String conta = prefixo + String.format("%07d", c);
+                    String reg = registro;
+                    String valor = valor();
+                    int falha = -1;
+                    // Só contas de despesa passam pelo validador; falhas nas demais não seriam contadas.
+                    // 4/5 da taxa vão para R01-R04 por linha; o 1/5 restante é R05 (por operadora, no CADOP).
+                    if (prefixo.charAt(0) == '4' && random.nextDouble() < taxaLinhasInvalidas * 0.8) {
+                        falha = random.nextInt(4);
+                        if (falha == 0) reg = registro.substring(1);  // R01: 5 dígitos
+                        if (falha == 1) valor = "N/D";                // R02
+                    }
+                    linha.setLength(0);
+                    linha.append('"').append(data).append("\";\"").append(reg).append("\";\"")
+                            .append(conta).append("\";\"CONTA ").append(c).append("\";\"")
+                            .append(valor()).append("\";\"").append(valor).append('"');
+                    if (falha == 2) {
+                        semPeriodo.add(linha.toString());       // R03
+                        continue;
+                    }
+                    w.write(linha.toString());
+                    w.newLine();
+                    if (falha == 3) {
+                        w.write(linha.toString());              // R04: mesma chave duas vezes
+                        w.newLine();
+                    }
+                }
+            }
+            w.flush();
+            zip.closeEntry();
+
+            if (!semPeriodo.isEmpty()) {
+                zip.putNextEntry(new ZipEntry("complemento_sem_periodo_" + trimestre + ".csv"));
+                w.write(CABECALHO);
+                w.newLine();
+                for (String l : semPeriodo) {
+                    w.write(l);
+                    w.newLine();
+                }
+                w.flush();
+                zip.closeEntry();
+            }
+        }
+    }
+
+    private String valor() {
+        long centavos = (long) (random.nextDouble() * 100_000_000L);
+        return (centavos / 100) + "," + String.format("%02d", centavos % 100);
+    }
+
+    // Uma parte da taxa de inválidas vira operadoras com CNPJ inválido (R05), de forma determinística
+    private boolean cnpjInvalido(int indice) {
+        return taxaLinhasInvalidas > 0 && new Random(indice).nextDouble() < taxaLinhasInvalidas / 5;
+    }
+
+    static String registro(int indice) {
+        return String.valueOf(PRIMEIRO_REGISTRO + indice);
+    }
+
+    // CNPJ com dígitos verificadores válidos (o validador rejeita os inválidos)
+    static String cnpj(int indice) {
+        int[] d = new int[14];
+        String base = String.format("%08d0001", indice);
+        for (int i = 0; i < 12; i++) {
+            d[i] = base.charAt(i) - '0';
+        }
+        d[12] = digito(d, 12);
+        d[13] = digito(d, 13);
+        StringBuilder sb = new StringBuilder(14);
+        for (int x : d) sb.append(x);
+        return sb.toString();
+    }
+
+    private static int digito(int[] d, int n) {
+        int soma = 0;
+        int peso = n - 7;
+        for (int i = 0; i < n; i++) {
+            soma += d[i] * peso;
+            peso = peso == 2 ? 9 : peso - 1;
+        }
+        int resto = soma % 11;
+        return resto < 2 ? 0 : 11 - resto;
+    }
+}
@@ -0,0 +1,221 @@
+package org.intuitivecare.desafio.cubo;
+
+import org.intuitivecare.desafio.model.Despesa;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Consultas do cubo contra uma agregação por força bruta sobre as mesmas despesas: filtros OR na mesma
+ * dimensão e AND entre dimensões, seleção vazia, ordem e empates do top-N e os caminhos com filtro
+ * (bitmap) e sem filtro (kernels).
+ */
+class ConsultaCuboTest {
+
+    private static final String[] UFS = {"SP", "RJ", "MG", "BA", null};
+    private static final String[] MODALIDADES = {"Cooperativa Médica", "Medicina de Grupo", "Autogestão"};
+    private static final String[] CONTAS = {"411", "412", "431", "46", "4"};
+
+    private final Random random = new Random(42);
+
+    @Test
+    void filtrosBatemComForcaBruta() {
+        List<Despesa> despesas = despesasAleatorias(5_000);
+        CuboDespesas cubo = CuboDespesas.construtor().adicionarTodas(despesas).construir();
+
+        // Cada caso: {dimensão, valores..., dimensão, valores...}; "XX" não existe no cubo
+        Object[][] casos = {
+                {},
+                {Dimensao.UF, new String[]{"SP"}},
+                {Dimensao.UF, new String[]{"SP", "RJ"}},
+                {Dimensao.UF, new String[]{Dimensao.NAO_INFORMADO}},
+                {Dimensao.UF, new String[]{"SP", "XX"}},
+                {Dimensao.UF, new String[]{"SP", "RJ"}, Dimensao.PERIODO, new String[]{"2025-T1"}},
+                {Dimensao.MODALIDADE, new String[]{"Autogestão"}, Dimensao.GRUPO_CONTA, new String[]{"41", "43"},
+                        Dimensao.OPERADORA, new String[]{"100001", "100002", "100003", "100004"}},
+                {Dimensao.GRUPO_CONTA, new String[]{Dimensao.NAO_INFORMADO, "46"}, Dimensao.PERIODO,
+                        new String[]{"2024-T4", "2025-T2"}},
+        };
+
+        for (Object[] caso : casos) {
+            Map<Dimensao, Set<String>> filtros = new EnumMap<>(Dimensao.class);
+            for (int i = 0; i < caso.length; i += 2) {
+                filtros.put((Dimensao) caso[i], new HashSet<>(Arrays.asList((String[]) caso[i + 1])));
+            }
+            List<Despesa> esperadas = despesas.stream().filter(d -> passa(d, filtros)).toList();
+            assertFalse(esperadas.isEmpty(), "caso sem linhas: " + filtros);
+
+            String nome = filtros.toString();
+            assertEquals(esperadas.size(), consulta(cubo, caso).contagem(), nome);
+            assertEquals(somaCentavos(esperadas), consulta(cubo, caso).somaCentavos(), nome);
+            assertEquals(media(esperadas), consulta(cubo, caso).media(), nome);
+            for (Dimensao agrupamento : Dimensao.values()) {
+                for (int n : new int[]{1, 3, 100}) {
+                    assertEquals(topN(despesas, esperadas, agrupamento, n),
+                            textos(consulta(cubo, caso).topN(agrupamento, n)), nome + " topN " + agrupamento + " " + n);
+                }
+            }
+        }
+    }
+
+    @Test
+    void selecaoVazia() {
+        CuboDespesas cubo = CuboDespesas.construtor()
+                .adicionar(despesa("100001", "SP", "2025", 1, "411", 1000))
+                .adicionar(despesa("100002", "RJ", "2025", 1, "411", 2000))
+                .construir();
+
+        // Valor inexistente e AND de dimensões sem interseção (100001 só tem linhas em SP)
+        List<ConsultaCubo> vazias = List.of(
+                cubo.consulta().filtrar(Dimensao.UF, "XX"),
+                cubo.consulta().filtrar(Dimensao.UF, "RJ").filtrar(Dimensao.OPERADORA, "100001"));
+        for (ConsultaCubo consulta : vazias) {
+            assertEquals(0, consulta.contagem());
+            assertEquals(0, consulta.somaCentavos());
+            assertNull(consulta.media());
+            assertTrue(consulta.topN(Dimensao.OPERADORA, 10).isEmpty());
+        }
+
+        CuboDespesas semLinhas = CuboDespesas.vazio();
+        assertEquals(0, semLinhas.consulta().contagem());
+        assertEquals(0, semLinhas.consulta().somaCentavos());
+        assertNull(semLinhas.consulta().media());
+        assertTrue(semLinhas.consulta().topN(Dimensao.UF, 5).isEmpty());
+    }
+
+    @Test
+    void topNOrdenaPorTotalEDesempataPelaOrdemDaCarga() {
+        CuboDespesas cubo = CuboDespesas.construtor()
+                .adicionar(despesa("100001", "SP", "2025", 1, "411", 10_000))
+                .adicionar(despesa("100002", "SP", "2025", 1, "411", 30_000))
+                .adicionar(despesa("100003", "RJ", "2025", 1, "411", 10_000))
+                .adicionar(despesa("100004", "RJ", "2025", 1, "411", 20_000))
+                .adicionar(despesa("100004", "RJ", "2025", 2, "411", 10_000))
+                .adicionar(despesa("100005", "MG", "2025", 2, "411", 5_000))
+                .construir();
+
+        List<String> todos = List.of("100002=300.00 (1)", "100004=300.00 (2)", "100001=100.00 (1)",
+                "100003=100.00 (1)", "100005=50.00 (1)");
+        // Sem filtro (kernels) e com um filtro que seleciona tudo (bitmap): mesmo ranking
+        for (ConsultaCubo consulta : List.of(cubo.consulta(),
+                cubo.consulta().filtrar(Dimensao.PERIODO, "2025-T1", "2025-T2"))) {
+            assertEquals(todos, textos(consulta.topN(Dimensao.OPERADORA, 10)));
+        }
+        assertEquals(todos.subList(0, 3), textos(cubo.consulta().topN(Dimensao.OPERADORA, 3)));
+        // O empate no corte fica com quem apareceu primeiro
+        assertEquals(List.of("100002=300.00 (1)"), textos(cubo.consulta().topN(Dimensao.OPERADORA, 1)));
+        assertEquals(List.of("100001=100.00 (1)"),
+                textos(cubo.consulta().filtrar(Dimensao.UF, "SP", "RJ").filtrar(Dimensao.PERIODO, "2025-T1")
+                        .topN(Dimensao.OPERADORA, 5).subList(2, 3)));
+        assertTrue(cubo.consulta().topN(Dimensao.OPERADORA, 0).isEmpty());
+    }
+
+    @Test
+    void caminhoSemFiltroIgualAoFiltrado() {
+        List<Despesa> despesas = despesasAleatorias(10_001);
+        CuboDespesas cubo = CuboDespesas.construtor().adicionarTodas(despesas).construir();
+        String[] periodos = cubo.valoresDe(Dimensao.PERIODO).toArray(new String[0]);
+
+        ConsultaCubo semFiltro = cubo.consulta();
+        ConsultaCubo filtroTotal = cubo.consulta().filtrar(Dimensao.PERIODO, periodos);
+
+        assertEquals(somaCentavos(despesas), semFiltro.somaCentavos());
+        assertEquals(semFiltro.somaCentavos(), filtroTotal.somaCentavos());
+        assertEquals(semFiltro.contagem(), filtroTotal.contagem());
+        assertEquals(semFiltro.media(), filtroTotal.media());
+        for (Dimensao agrupamento : Dimensao.values()) {
+            assertEquals(topN(despesas, despesas, agrupamento, 10), textos(semFiltro.topN(agrupamento, 10)),
+                    agrupamento.name());
+            assertEquals(textos(semFiltro.topN(agrupamento, 10)), textos(filtroTotal.topN(agrupamento, 10)),
+                    agrupamento.name());
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Força bruta
+    // ---------------------------------------------------------------------------------------------
+
+    private static ConsultaCubo consulta(CuboDespesas cubo, Object[] caso) {
+        ConsultaCubo consulta = cubo.consulta();
+        for (int i = 0; i < caso.length; i += 2) {
+            consulta.filtrar((Dimensao) caso[i], (String[]) caso[i + 1]);
+        }
+        return consulta;
+    }
+
+    private static boolean passa(Despesa d, Map<Dimensao, Set<String>> filtros) {
+        for (Map.Entry<Dimensao, Set<String>> filtro : filtros.entrySet()) {
+            if (!filtro.getValue().contains(filtro.getKey().valorDe(d))) return false;
+        }
+        return true;
+    }
+
+    private static long somaCentavos(List<Despesa> despesas) {
+        long soma = 0;
+        for (Despesa d : despesas) {
+            soma += d.getValor().unscaledValue().longValueExact();
+        }
+        return soma;
+    }
+
+    private static BigDecimal media(List<Despesa> despesas) {
+        if (despesas.isEmpty()) return null;
+        return BigDecimal.valueOf(somaCentavos(despesas), 2)
+                .divide(BigDecimal.valueOf(despesas.size()), 2, RoundingMode.HALF_EVEN);
+    }
+
+    /** Top-N esperado: total decrescente; empates pela primeira aparição do valor na carga inteira. */
+    private static List<String> topN(List<Despesa> carga, List<Despesa> selecionadas, Dimensao agrupamento, int n) {
+        Map<String, Integer> ordemCarga = new HashMap<>();
+        for (Despesa d : carga) {
+            ordemCarga.putIfAbsent(agrupamento.valorDe(d), ordemCarga.size());
+        }
+        Map<String, long[]> grupos = new HashMap<>();
+        for (Despesa d : selecionadas) {
+            long[] grupo = grupos.computeIfAbsent(agrupamento.valorDe(d), k -> new long[2]);
+            grupo[0] += d.getValor().unscaledValue().longValueExact();
+            grupo[1]++;
+        }
+        return grupos.entrySet().stream()
+                .sorted(Comparator.<Map.Entry<String, long[]>>comparingLong(e -> -e.getValue()[0])
+                        .thenComparingInt(e -> ordemCarga.get(e.getKey())))
+                .limit(n)
+                .map(e -> new ItemRanking(e.getKey(), e.getValue()[0], e.getValue()[1]).toString())
+                .collect(Collectors.toList());
+    }
+
+    private static List<String> textos(List<ItemRanking> ranking) {
+        return ranking.stream().map(ItemRanking::toString).collect(Collectors.toList());
+    }
+
+    // ---------------------------------------------------------------------------------------------
+
+    /** Poucas operadoras e valores repetidos para forçar empates; inclui estornos (negativos) e campos vazios. */
+    private List<Despesa> despesasAleatorias(int n) {
+        List<Despesa> despesas = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Despesa d = despesa(String.valueOf(100_001 + random.nextInt(40)), UFS[random.nextInt(UFS.length)],
+                    String.valueOf(2024 + random.nextInt(2)), 1 + random.nextInt(4),
+                    CONTAS[random.nextInt(CONTAS.length)], (random.nextInt(2_000) - 100) * 500L);
+            d.setModalidade(MODALIDADES[random.nextInt(MODALIDADES.length)]);
+            despesas.add(d);
+        }
+        return despesas;
+    }
+
+    private static Despesa despesa(String registro, String uf, String ano, int trimestre, String conta, long centavos) {
+        Despesa d = new Despesa();
+        d.setRegistroAns(registro);
+        d.setUf(uf);
+        d.setAno(Integer.parseInt(ano));
+        d.setTrimestre(trimestre);
+        d.setConta(conta);
+        d.setValor(BigDecimal.valueOf(centavos, 2));
+        return d;
+    }
+}
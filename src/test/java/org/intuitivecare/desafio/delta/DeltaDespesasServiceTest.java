@@ -0,0 +1,154 @@
+package org.intuitivecare.desafio.delta;
+
+import org.intuitivecare.desafio.model.Despesa;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Merge entre o trimestre novo e as impressões da execução anterior: inserções, alterações e remoções,
+ * arquivo anterior vazio ou de outra versão, e publicação só em {@link DeltaDespesasService.EscritorDelta#concluir()}.
+ */
+class DeltaDespesasServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private final DeltaDespesasService service = new DeltaDespesasService(true);
+    private Path arquivoDelta;
+    private Path impressoes;
+
+    @BeforeEach
+    void preparar() {
+        arquivoDelta = dir.resolve("delta_despesas.csv");
+        impressoes = dir.resolve("impressoes");
+    }
+
+    @Test
+    void primeiraExecucaoTudoInserido() throws Exception {
+        long[] contagem = executar(List.of(despesa("100001", "411", "10,00"), despesa("100002", "411", "20,00")));
+        assertContagem(contagem, 2, 0, 0);
+        assertTrue(Files.exists(impressoes.resolve("despesas_2024_t1.bin")));
+    }
+
+    @Test
+    void insercaoAlteracaoERemocao() throws Exception {
+        executar(List.of(
+                despesa("100001", "411", "10,00"),
+                despesa("100001", "412", "11,00"),
+                despesa("100002", "411", "20,00"),
+                despesa("100003", "411", "30,00")));
+
+        long[] contagem = executar(List.of(
+                despesa("100001", "411", "10,00"),   // igual
+                despesa("100001", "412", "99,00"),   // U
+                // 100002/411 sumiu: D (no meio do merge)
+                despesa("100003", "411", "30,00"),   // igual
+                despesa("100004", "411", "40,00"))); // I (depois do fim do arquivo anterior)
+        assertContagem(contagem, 1, 1, 1);
+
+        // A referência passou a ser a segunda execução: repetir não gera delta
+        assertContagem(executar(List.of(
+                despesa("100001", "411", "10,00"),
+                despesa("100001", "412", "99,00"),
+                despesa("100003", "411", "30,00"),
+                despesa("100004", "411", "40,00"))), 0, 0, 0);
+
+        // Trimestre vazio: tudo removido
+        assertContagem(executar(List.of()), 0, 0, 4);
+    }
+
+    @Test
+    void ordemDeChegadaNaoImporta() throws Exception {
+        executar(List.of(despesa("100002", "411", "20,00"), despesa("100001", "411", "10,00")));
+        assertContagem(executar(List.of(despesa("100001", "411", "10,00"), despesa("100002", "411", "20,00"))), 0, 0, 0);
+    }
+
+    @Test
+    void arquivoAnteriorVazio() throws Exception {
+        assertContagem(executar(List.of()), 0, 0, 0);
+        assertContagem(executar(List.of(despesa("100001", "411", "10,00"))), 1, 0, 0);
+    }
+
+    @Test
+    void versaoDiferenteViraPrimeiraExecucao() throws Exception {
+        Files.createDirectories(impressoes);
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(impressoes.resolve("despesas_2024_t1.bin")))) {
+            out.writeInt(0x44454C54);
+            out.writeInt(1); // v1: chave pelo CNPJ
+            out.writeBoolean(true);
+            out.writeUTF("100001");
+            out.writeUTF("411");
+            out.writeLong(0L);
+            out.writeBoolean(false);
+        }
+        long[] contagem = executar(List.of(despesa("100001", "411", "10,00"), despesa("100002", "411", "20,00")));
+        assertContagem(contagem, 2, 0, 0);
+    }
+
+    @Test
+    void falhaNaoPublicaDeltaNemImpressoes() throws Exception {
+        executar(List.of(despesa("100001", "411", "10,00")));
+        Path bin = impressoes.resolve("despesas_2024_t1.bin");
+        byte[] binAnterior = Files.readAllBytes(bin);
+        Files.writeString(arquivoDelta, "delta publicado");
+
+        try (DeltaDespesasService.EscritorDelta delta = service.abrir(arquivoDelta, impressoes)) {
+            service.compararTrimestre(2024, 1, List.of(despesa("100001", "411", "50,00")), delta);
+            assertEquals(1, delta.getContagem(OperacaoDelta.ALTERADA));
+            // sem concluir(): a execução "falhou"
+        }
+
+        assertEquals("delta publicado", Files.readString(arquivoDelta));
+        assertArrayEquals(binAnterior, Files.readAllBytes(bin));
+        assertFalse(Files.exists(dir.resolve("delta_despesas.csv.parcial")));
+        assertFalse(Files.exists(impressoes.resolve("despesas_2024_t1.bin.novo")));
+
+        // A próxima execução ainda compara contra a última completa
+        assertContagem(executar(List.of(despesa("100001", "411", "50,00"))), 0, 1, 0);
+    }
+
+    // ---------------------------------------------------------------------------------------------
+
+    /** Roda uma execução completa do trimestre 1T2024, em lotes de 2, e devolve {I, U, D}. */
+    private long[] executar(List<Despesa> despesas) throws Exception {
+        try (DeltaDespesasService.EscritorDelta delta = service.abrir(arquivoDelta, impressoes)) {
+            DeltaDespesasService.ComparacaoTrimestre comparacao = service.novaComparacao(2024, 1);
+            for (int i = 0; i < despesas.size(); i += 2) {
+                comparacao.adicionar(despesas.subList(i, Math.min(i + 2, despesas.size())));
+            }
+            comparacao.comparar(delta);
+            assertTrue(Files.exists(dir.resolve("delta_despesas.csv.parcial")), "delta fora do arquivo parcial");
+            delta.concluir();
+            assertTrue(Files.exists(arquivoDelta), "delta não publicado");
+            assertFalse(Files.exists(dir.resolve("delta_despesas.csv.parcial")), "parcial não removido");
+            return new long[]{delta.getContagem(OperacaoDelta.INSERIDA), delta.getContagem(OperacaoDelta.ALTERADA),
+                    delta.getContagem(OperacaoDelta.REMOVIDA)};
+        }
+    }
+
+    private static void assertContagem(long[] contagem, long inseridas, long alteradas, long removidas) {
+        assertEquals(inseridas, contagem[0], "inseridas");
+        assertEquals(alteradas, contagem[1], "alteradas");
+        assertEquals(removidas, contagem[2], "removidas");
+    }
+
+    private static Despesa despesa(String registro, String conta, String valor) {
+        Despesa d = new Despesa();
+        d.setRegistroAns(registro);
+        d.setConta(conta);
+        d.setValor(new BigDecimal(valor.replace(',', '.')));
+        d.setAno(2024);
+        d.setTrimestre(1);
+        d.setRazaoSocial("OPERADORA " + registro);
+        return d;
+    }
+}
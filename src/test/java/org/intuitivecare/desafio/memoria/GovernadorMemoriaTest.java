@@ -0,0 +1,129 @@
+package org.intuitivecare.desafio.memoria;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Backpressure de {@link GovernadorMemoria#reservar}/{@link GovernadorMemoria#liberar} e o dimensionamento de
+ * lotes e paralelismo, com um orçamento de 1 MB.
+ */
+class GovernadorMemoriaTest {
+
+    private static final long MB = 1024 * 1024;
+    private static final int NUCLEOS = Runtime.getRuntime().availableProcessors();
+
+    private final GovernadorMemoria governador = new GovernadorMemoria(1);
+
+    @Test
+    void reservarEsperaAteOutroLoteLiberar() throws Exception {
+        governador.reservar(MB * 3 / 4);
+        ExecutorService outra = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch reservou = new CountDownLatch(1);
+            Future<?> segundo = outra.submit(() -> {
+                governador.reservar(MB / 2);
+                reservou.countDown();
+                return null;
+            });
+            assertFalse(reservou.await(200, TimeUnit.MILLISECONDS), "passou do orçamento sem esperar");
+
+            governador.liberar(MB * 3 / 4);
+            segundo.get(10, TimeUnit.SECONDS);
+            assertTrue(governador.resumo().startsWith("reservado=0 MB"), governador.resumo());
+        } finally {
+            outra.shutdownNow();
+        }
+    }
+
+    @Test
+    void liberarFixoAcordaQuemEspera() throws Exception {
+        governador.ajustarFixo(MB / 2);
+        governador.reservar(MB / 4);
+        ExecutorService outra = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> segundo = outra.submit(() -> {
+                governador.reservar(MB / 2);
+                return null;
+            });
+            assertThrows(TimeoutException.class, () -> segundo.get(200, TimeUnit.MILLISECONDS));
+
+            governador.ajustarFixo(-MB / 2);
+            segundo.get(10, TimeUnit.SECONDS);
+        } finally {
+            outra.shutdownNow();
+        }
+    }
+
+    @Test
+    void loteMaiorQueOOrcamentoPassaSozinho() throws Exception {
+        // Sem nada em processamento, esperar travaria a execução para sempre
+        governador.reservar(4 * MB);
+        governador.liberar(4 * MB);
+        governador.reservar(4 * MB);
+    }
+
+    @Test
+    void liberarNaoFicaNegativo() throws Exception {
+        governador.liberar(MB);
+        governador.reservar(MB * 3 / 4);
+        // Se o reservado tivesse ido a -1 MB, este lote esperaria para sempre
+        governador.liberar(MB * 3 / 4);
+        governador.reservar(MB * 3 / 4);
+    }
+
+    @Test
+    void paralelismoLimitadoPorMemoriaNucleosETarefas() throws Exception {
+        assertEquals(1, governador.paralelismo(2 * MB, 8), "tarefa maior que o orçamento");
+        assertEquals(1, governador.paralelismo(MB / 8, 0), "sem tarefas");
+        assertEquals(Math.min(NUCLEOS, 3), governador.paralelismo(MB / 8, 3));
+        assertEquals(Math.min(NUCLEOS, 4), governador.paralelismo(MB / 4, 100));
+        assertEquals(Math.min(NUCLEOS, 100), governador.paralelismo(0, 100));
+
+        // O que já está reservado ou fixo sai do orçamento livre
+        governador.ajustarFixo(MB / 2);
+        assertEquals(Math.min(NUCLEOS, 2), governador.paralelismo(MB / 4, 100));
+        governador.reservar(MB / 4);
+        assertEquals(1, governador.paralelismo(MB / 4, 100));
+    }
+
+    @Test
+    void tamanhoLoteUsaUmDezesseisAvosDoLivre() {
+        assertEquals(MB / 16 / 32, governador.tamanhoLote(32, 10, 100_000));
+        assertEquals(500, governador.tamanhoLote(GovernadorMemoria.BYTES_POR_DESPESA, 500, 20_000), "mínimo");
+        assertEquals(100, governador.tamanhoLote(1, 10, 100), "máximo");
+        assertEquals(10, governador.tamanhoLote(0, 10, 10), "bytes por item zerado");
+    }
+
+    @Test
+    void bytesPorTarefaCresceComAsLinhasDoTrimestre() {
+        long lote = 500 * GovernadorMemoria.BYTES_POR_DESPESA;
+        long linhas = 10_000;
+        long bytesCsv = linhas * GovernadorMemoria.BYTES_CSV_POR_LINHA;
+
+        assertEquals(lote, GovernadorMemoria.bytesPorTarefa(0, 500, true));
+        assertEquals(lote + linhas * GovernadorMemoria.BYTES_POR_LINHA_CUBO,
+                GovernadorMemoria.bytesPorTarefa(bytesCsv, 500, false));
+        assertEquals(lote + linhas * (GovernadorMemoria.BYTES_POR_LINHA_CUBO + GovernadorMemoria.BYTES_POR_IMPRESSAO_DELTA),
+                GovernadorMemoria.bytesPorTarefa(bytesCsv, 500, true));
+    }
+
+    @Test
+    void trimestresGrandesReduzemOParalelismo() {
+        int lote = governador.tamanhoLote(GovernadorMemoria.BYTES_POR_DESPESA, 500, 20_000);
+        int soLote = governador.paralelismo(lote * GovernadorMemoria.BYTES_POR_DESPESA, 100);
+        int trimestrePequeno = governador.paralelismo(GovernadorMemoria.bytesPorTarefa(60_000, lote, true), 100);
+        int trimestreGrande = governador.paralelismo(GovernadorMemoria.bytesPorTarefa(6_000_000, lote, true), 100);
+
+        assertEquals(Math.min(NUCLEOS, 6), soLote);
+        assertEquals(Math.min(NUCLEOS, 3), trimestrePequeno);
+        assertEquals(1, trimestreGrande);
+    }
+}
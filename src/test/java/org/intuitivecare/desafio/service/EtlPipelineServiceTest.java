@@ -0,0 +1,58 @@
+package org.intuitivecare.desafio.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Exclusividade do pipeline: um ciclo do watch não roda enquanto outra execução estiver em andamento.
+ */
+class EtlPipelineServiceTest {
+
+    // Só a trava é exercitada: nenhum colaborador é usado
+    private final EtlPipelineService pipeline = new EtlPipelineService(null, null, null, null, null, null, null,
+            null, null, false, null, null);
+
+    @Test
+    void segundaTarefaNaoRodaEnquantoAPrimeiraEstiverEmAndamento() throws Exception {
+        CountDownLatch dentro = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        AtomicInteger execucoes = new AtomicInteger();
+        ExecutorService outra = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> primeira = outra.submit(() -> pipeline.executarSeLivre(() -> {
+                execucoes.incrementAndGet();
+                dentro.countDown();
+                assertTrue(liberar.await(10, TimeUnit.SECONDS));
+            }));
+            assertTrue(dentro.await(10, TimeUnit.SECONDS));
+
+            assertFalse(pipeline.executarSeLivre(execucoes::incrementAndGet), "rodou em paralelo");
+
+            liberar.countDown();
+            assertTrue(primeira.get(10, TimeUnit.SECONDS));
+            assertEquals(1, execucoes.get());
+
+            // Livre de novo depois que a primeira termina
+            assertTrue(pipeline.executarSeLivre(execucoes::incrementAndGet));
+            assertEquals(2, execucoes.get());
+        } finally {
+            outra.shutdownNow();
+        }
+    }
+
+    @Test
+    void falhaLiberaATrava() throws Exception {
+        assertThrows(IllegalStateException.class, () -> pipeline.executarSeLivre(() -> {
+            throw new IllegalStateException("falhou");
+        }));
+        assertTrue(pipeline.executarSeLivre(() -> { }));
+    }
+}
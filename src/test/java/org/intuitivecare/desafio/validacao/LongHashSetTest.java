@@ -0,0 +1,66 @@
+package org.intuitivecare.desafio.validacao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Conjunto de longs do validador: chave zero (o marcador de slot vazio), redimensionamento
+ * e paridade com um HashSet&lt;Long&gt;.
+ */
+class LongHashSetTest {
+
+    @Test
+    void chaveZeroEhUmaChaveComum() {
+        LongHashSet conjunto = new LongHashSet(4);
+        assertTrue(conjunto.add(0L));
+        assertFalse(conjunto.add(0L));
+        assertTrue(conjunto.add(1L));
+        assertFalse(conjunto.add(1L));
+        assertEquals(2, conjunto.size());
+    }
+
+    @Test
+    void redimensionaSemPerderChaves() {
+        LongHashSet conjunto = new LongHashSet(1); // começa com 16 slots e dobra várias vezes
+        int n = 100_000;
+        for (int i = 0; i < n; i++) {
+            assertTrue(conjunto.add(i * 31L), "inserção " + i);
+        }
+        assertEquals(n, conjunto.size());
+        for (int i = 0; i < n; i++) {
+            assertFalse(conjunto.add(i * 31L), "chave " + i + " perdida no redimensionamento");
+        }
+        assertEquals(n, conjunto.size());
+    }
+
+    @Test
+    void extremosENegativos() {
+        LongHashSet conjunto = new LongHashSet(16);
+        long[] chaves = {Long.MIN_VALUE, Long.MAX_VALUE, -1L, 1L << 62, 1L << 43, 0L};
+        for (long chave : chaves) {
+            assertTrue(conjunto.add(chave), "primeira inserção de " + chave);
+        }
+        for (long chave : chaves) {
+            assertFalse(conjunto.add(chave), "segunda inserção de " + chave);
+        }
+        assertEquals(chaves.length, conjunto.size());
+    }
+
+    @Test
+    void mesmoResultadoQueHashSet() {
+        Random random = new Random(42);
+        LongHashSet conjunto = new LongHashSet(64);
+        Set<Long> referencia = new HashSet<>();
+        for (int i = 0; i < 200_000; i++) {
+            // Faixa pequena para forçar repetições, com o zero incluído
+            long chave = random.nextInt(50_000) - 25_000;
+            assertEquals(referencia.add(chave), conjunto.add(chave), "chave " + chave);
+        }
+        assertEquals(referencia.size(), conjunto.size());
+    }
+}
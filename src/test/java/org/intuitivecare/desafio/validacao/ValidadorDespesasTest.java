@@ -0,0 +1,149 @@
+package org.intuitivecare.desafio.validacao;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Regras do validador em tabela: parse de valores no formato brasileiro, dígitos do CNPJ
+ * e chave compacta de duplicidade (com o caminho exato para contas que não cabem num long).
+ */
+class ValidadorDespesasTest {
+
+    private static final long INVALIDO = ValidadorDespesas.VALOR_INVALIDO;
+
+    // {entrada, centavos esperados}
+    private static final Object[][] VALORES = {
+            {"1.234,56", 123_456L},
+            {"-1.234,56", -123_456L},
+            {"+10,5", 1_050L},
+            {"0,01", 1L},
+            {"-0,00", 0L},
+            {"1234", 123_400L},
+            {"1,", 100L},
+            {",5", 50L},
+            {"1.000.000,00", 100_000_000L},
+            {"12345678901234567", 1_234_567_890_123_456_700L},          // 17 dígitos: limite
+            {"12.345.678.901.234.567,89", 1_234_567_890_123_456_789L},  // separadores não contam
+            {"-12345678901234567,99", -1_234_567_890_123_456_799L},
+            {"123456789012345678", INVALIDO},                           // 18 dígitos
+            {"99999999999999999", INVALIDO},                            // 17 dígitos, mas estoura o long
+            {"1,234", INVALIDO},                                        // mais de 2 casas
+            {"0,001", INVALIDO},
+            {"1,2,3", INVALIDO},
+            {"1,2.3", INVALIDO},                                        // ponto depois da vírgula
+            {"--1", INVALIDO},
+            {"-", INVALIDO},
+            {",", INVALIDO},
+            {"", INVALIDO},
+            {null, INVALIDO},
+            {"N/D", INVALIDO},
+            {"12a", INVALIDO},
+            {" 1", INVALIDO},
+            {"1e3", INVALIDO},
+    };
+
+    // {CNPJ, válido?}
+    private static final Object[][] CNPJS = {
+            {"11.222.333/0001-81", true},
+            {"11222333000181", true},
+            {"33.000.167/0001-01", true},
+            {"00.000.000/0001-91", true},
+            {"11 222 333 0001 81", true},
+            {"11.222.333/0001-82", false},   // 2º dígito errado
+            {"11.222.333/0001-71", false},   // 1º dígito errado
+            {"00000000000000", false},       // sequência repetida passa no cálculo, mas é inválida
+            {"11111111111111", false},
+            {"1122233300018", false},        // 13 dígitos
+            {"112223330001811", false},      // 15 dígitos
+            {"11a22333000181", false},
+            {"", false},
+            {null, false},
+    };
+
+    @Test
+    void parseCentavosEmTabela() {
+        for (Object[] caso : VALORES) {
+            String entrada = (String) caso[0];
+            assertEquals((long) caso[1], ValidadorDespesas.parseCentavos(entrada), "parseCentavos(" + entrada + ")");
+        }
+    }
+
+    @Test
+    void cnpjValidoEmTabela() {
+        for (Object[] caso : CNPJS) {
+            String cnpj = (String) caso[0];
+            assertEquals(caso[1], ValidadorDespesas.cnpjValido(cnpj), "cnpjValido(" + cnpj + ")");
+        }
+    }
+
+    @Test
+    void chaveCompactaEExataParaContasNumericas() {
+        long esperada = (123_456L << 43) | ((24L << 2 | 2) << 34) | 411_111L;
+        assertEquals(esperada, ValidadorDespesas.chave("123456", "411111", 2024, 3));
+
+        // Limites de cada campo continuam não negativos e distintos entre si
+        long[] chaves = {
+                ValidadorDespesas.chave("999999", "9999999999", 2127, 4),
+                ValidadorDespesas.chave("999999", "9999999999", 2127, 3),
+                ValidadorDespesas.chave("999999", "9999999998", 2127, 4),
+                ValidadorDespesas.chave("999998", "9999999999", 2127, 4),
+                ValidadorDespesas.chave("999999", "9999999999", 2126, 4),
+                ValidadorDespesas.chave("000000", "0", 2000, 1),
+                ValidadorDespesas.chave("000001", "0", 2000, 1),
+                ValidadorDespesas.chave("000000", "1", 2000, 1),
+        };
+        for (int i = 0; i < chaves.length; i++) {
+            assertTrue(chaves[i] >= 0, "chave " + i + " negativa: " + chaves[i]);
+            for (int j = i + 1; j < chaves.length; j++) {
+                assertTrue(chaves[i] != chaves[j], "chaves " + i + " e " + j + " colidem");
+            }
+        }
+    }
+
+    @Test
+    void chaveNaoCompactaParaContasForaDoFormato() {
+        String[] contas = {"4111A", "41.11", "41111111111", "", null};
+        for (String conta : contas) {
+            assertEquals(ValidadorDespesas.CHAVE_NAO_COMPACTA, ValidadorDespesas.chave("123456", conta, 2024, 1),
+                    "chave com conta " + conta);
+        }
+    }
+
+    @Test
+    void duplicidadeExataParaContasNaoCompactas(@TempDir Path dir) throws Exception {
+        try (ValidadorDespesas validador = new ValidadorDespesas(dir.resolve("rejeitados.csv"))) {
+            // Contas diferentes que antes caíam no hash: nenhuma pode virar R04
+            for (int i = 0; i < 5_000; i++) {
+                assertNull(validador.validarLinha("1T2024.csv", i + 2, "123456", "4X" + i, "1,00", 100, 2024, 1),
+                        "conta 4X" + i);
+            }
+            // Mesma chave textual de novo: aí sim é duplicada
+            assertEquals(MotivoRejeicao.CHAVE_DUPLICADA,
+                    validador.validarLinha("1T2024.csv", 9_999, "123456", "4X42", "1,00", 100, 2024, 1));
+            // Mesma conta em outro trimestre não é duplicada
+            assertNull(validador.validarLinha("2T2024.csv", 2, "123456", "4X42", "1,00", 100, 2024, 2));
+
+            assertEquals(5_001, validador.getAceitas());
+            assertEquals(1, validador.getRejeitadas(MotivoRejeicao.CHAVE_DUPLICADA));
+        }
+    }
+
+    @Test
+    void regrasEmOrdemDePrioridade(@TempDir Path dir) throws Exception {
+        try (ValidadorDespesas validador = new ValidadorDespesas(dir.resolve("rejeitados.csv"))) {
+            assertEquals(MotivoRejeicao.REGISTRO_INVALIDO,
+                    validador.validarLinha("a.csv", 2, "12345", "411", "x", INVALIDO, 0, 0));
+            assertEquals(MotivoRejeicao.VALOR_INVALIDO,
+                    validador.validarLinha("a.csv", 3, "123456", "411", "x", INVALIDO, 0, 0));
+            assertEquals(MotivoRejeicao.TRIMESTRE_DESCONHECIDO,
+                    validador.validarLinha("a.csv", 4, "123456", "411", "1,00", 100, 0, 0));
+            assertNull(validador.validarLinha("1T2024.csv", 5, "123456", "411", "1,00", 100, 2024, 1));
+            assertEquals(MotivoRejeicao.CHAVE_DUPLICADA,
+                    validador.validarLinha("1T2024.csv", 6, "123456", "411", "2,00", 200, 2024, 1));
+        }
+    }
+}